@@ -1,6 +1,6 @@
 package com.rogerio.libraryapi;
 
-import org.modelmapper.ModelMapper;
+import com.rogerio.libraryapi.mapper.BookMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -26,8 +26,8 @@ public class LibraryApiApplication {
 	 */
 
 	@Bean
-	public ModelMapper ModelMapper(){
-		return new ModelMapper();
+	public BookMapper bookMapper(){
+		return new BookMapper();
 	}
 
 	public static void main(String[] args) {
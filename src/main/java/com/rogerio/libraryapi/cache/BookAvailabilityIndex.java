@@ -0,0 +1,101 @@
+package com.rogerio.libraryapi.cache;
+
+import com.rogerio.libraryapi.config.TransactionCallbacks;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+// Bitmap em memória dos livros atualmente emprestados, indexado pelo id do livro.
+// Reflete só o que passou por este nó; a admissão de empréstimos confere sempre o banco
+@Component
+@Slf4j
+public class BookAvailabilityIndex {
+
+    private final LoanRepository loanRepository;
+
+    private BitSet loanedBooks = new BitSet();
+
+    private volatile boolean ready;
+
+    @Value("${application.loans.availability.enabled:true}")
+    private boolean enabled = true;
+
+    public BookAvailabilityIndex(LoanRepository loanRepository) {
+        this.loanRepository = loanRepository;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Long> bookIds = loanRepository.findNotReturnedBookIds();
+        BitSet rebuilt = new BitSet();
+        for (Long bookId : bookIds) {
+            if (isIndexable(bookId)) {
+                rebuilt.set(bookId.intValue());
+            }
+        }
+        synchronized (this) {
+            loanedBooks = rebuilt;
+        }
+        ready = true;
+        log.info("Índice de disponibilidade reconstruído: {} livros emprestados em {} ms",
+                bookIds.size(), System.currentTimeMillis() - start);
+    }
+
+    // Retorna null quando o índice não pode responder e o banco deve ser consultado
+    public synchronized Boolean isLoaned(Long bookId) {
+        if (!isReady() || !isIndexable(bookId)) {
+            return null;
+        }
+        return loanedBooks.get(bookId.intValue());
+    }
+
+    // O índice só reflete o que foi efetivado no banco
+    public void markLoaned(Long bookId) {
+        TransactionCallbacks.afterCommit(() -> set(bookId, true));
+    }
+
+    public void markReturned(Long bookId) {
+        TransactionCallbacks.afterCommit(() -> set(bookId, false));
+    }
+
+    // Uma única notificação para todos os livros de um empréstimo ou devolução em lote
+    public void markLoaned(Collection<Long> bookIds) {
+        TransactionCallbacks.afterCommit(() -> setAll(bookIds, true));
+    }
+
+    public void markReturned(Collection<Long> bookIds) {
+        TransactionCallbacks.afterCommit(() -> setAll(bookIds, false));
+    }
+
+    public synchronized void set(Long bookId, boolean loaned) {
+        if (isIndexable(bookId)) {
+            loanedBooks.set(bookId.intValue(), loaned);
+        }
+    }
+
+    private synchronized void setAll(Collection<Long> bookIds, boolean loaned) {
+        bookIds.forEach(bookId -> set(bookId, loaned));
+    }
+
+    private static boolean isIndexable(Long bookId) {
+        return bookId != null && bookId >= 0 && bookId <= Integer.MAX_VALUE;
+    }
+}
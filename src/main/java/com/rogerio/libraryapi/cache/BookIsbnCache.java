@@ -0,0 +1,167 @@
+package com.rogerio.libraryapi.cache;
+
+import com.rogerio.libraryapi.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Cache LRU limitado de ISBN -> id do livro, guardando também os ISBNs inexistentes (cache negativo).
+// Só o id é compartilhado entre requisições; a entidade é carregada pelo id a cada uso, com versão e
+// disponibilidade atuais, e pertence à sessão de quem a carregou
+@Component
+public class BookIsbnCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    public BookIsbnCache(@Value("${application.books.isbn-cache.max-size:10000}") int maxSize,
+                         @Value("${application.books.isbn-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > BookIsbnCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Acerto: carrega pelo id (chave primária); falta: busca pelo ISBN e guarda o id
+    public Optional<Book> get(String isbn, Function<String, Optional<Book>> loader,
+                              Function<Long, Optional<Book>> byId) {
+        Entry entry = lookup(isbn);
+        if (entry != null) {
+            if (!entry.getBookId().isPresent()) {
+                return Optional.empty();
+            }
+            Optional<Book> book = byId.apply(entry.getBookId().get());
+            if (book.isPresent() && isbn.equals(book.get().getIsbn())) {
+                return book;
+            }
+            // Livro excluído ou com outro ISBN desde que entrou no cache
+            invalidate(isbn);
+        }
+        Optional<Book> book = loader.apply(isbn);
+        put(isbn, book.map(Book::getId).orElse(null));
+        return book;
+    }
+
+    // Retorna TRUE/FALSE quando o ISBN é conhecido pelo cache, ou null quando é preciso consultar o banco
+    public Boolean exists(String isbn) {
+        Entry entry = lookup(isbn);
+        return entry == null ? null : entry.getBookId().isPresent();
+    }
+
+    public void put(String isbn, Long bookId) {
+        if (isbn == null || maxSize <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(isbn, new Entry(Optional.ofNullable(bookId), System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(isbn);
+        }
+    }
+
+    // Remove a entrada do ISBN atual e qualquer entrada antiga que aponte para o mesmo livro
+    public void invalidate(Book book) {
+        if (book == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(book.getIsbn());
+            if (book.getId() != null) {
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    Optional<Long> cached = iterator.next().getBookId();
+                    if (cached.isPresent() && book.getId().equals(cached.get())) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(size, hits.get(), negativeHits.get(), misses.get(), evictions.get(), expirations.get());
+    }
+
+    private Entry lookup(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(isbn);
+            if (entry != null && entry.getExpiresAt() - System.nanoTime() <= 0) {
+                entries.remove(isbn);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else if (entry.getBookId().isPresent()) {
+            hits.incrementAndGet();
+        } else {
+            negativeHits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final Optional<Long> bookId;
+        private final long expiresAt;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int size;
+        private final long hits;
+        private final long negativeHits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+    }
+}
@@ -0,0 +1,140 @@
+package com.rogerio.libraryapi.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rogerio.libraryapi.dto.BookDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Cache LRU de id -> JSON do BookDTO já codificado em UTF-8, válido só para a versão do livro
+// com que foi gerado e limitado pelo total de bytes guardados
+@Component
+public class BookJsonCache {
+
+    // Custo aproximado de cada entrada além do JSON (nó do mapa, chave e objeto Entry)
+    static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public BookJsonCache(ObjectMapper objectMapper,
+                         @Value("${application.books.json-cache.max-bytes:4194304}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+    }
+
+    // JSON da versão pedida; na ausência (ou com outra versão em cache) carrega o DTO e serializa uma vez
+    public Optional<byte[]> get(Long id, Long version, Function<Long, Optional<BookDTO>> loader) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null && Objects.equals(entry.getVersion(), version)) {
+                hits.incrementAndGet();
+                return Optional.of(entry.getJson());
+            }
+        }
+        misses.incrementAndGet();
+        Optional<BookDTO> dto = loader.apply(id);
+        if (!dto.isPresent()) {
+            invalidate(id);
+            return Optional.empty();
+        }
+        byte[] json = toJson(dto.get());
+        put(id, version, json);
+        return Optional.of(json);
+    }
+
+    public void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        synchronized (entries) {
+            Entry removed = entries.remove(id);
+            if (removed != null) {
+                bytes -= removed.getCost();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(entries.size(), bytes, hits.get(), misses.get(), evictions.get());
+        }
+    }
+
+    private void put(Long id, Long version, byte[] json) {
+        Entry entry = new Entry(version, json);
+        // Uma entrada maior que o limite não entra, para não esvaziar o cache
+        if (entry.getCost() > maxBytes) {
+            invalidate(id);
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(id, entry);
+            if (previous != null) {
+                bytes -= previous.getCost();
+            }
+            bytes += entry.getCost();
+            // Remove as menos usadas até caber no limite de memória
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                bytes -= evicted.getCost();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private byte[] toJson(BookDTO dto) {
+        try {
+            return objectMapper.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final Long version;
+        private final byte[] json;
+
+        private long getCost() {
+            return json.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int size;
+        private final long bytes;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+    }
+}
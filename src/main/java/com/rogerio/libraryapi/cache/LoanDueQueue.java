@@ -0,0 +1,292 @@
+package com.rogerio.libraryapi.cache;
+
+import com.rogerio.libraryapi.config.TransactionCallbacks;
+import com.rogerio.libraryapi.entity.JobCheckpoint;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.repository.JobCheckpointRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Fila em memória dos vencimentos dos empréstimos abertos (heap por instante de vencimento).
+// Uma thread dorme até o próximo vencimento e publica LoansOverdueEvent com os empréstimos que venceram;
+// o custo acompanha os empréstimos que vencem, sem varrer tb_loan. A devolução só tira o empréstimo de
+// scheduled e a entrada é descartada quando chega a vez dela.
+// O vencimento é o início do dia loanDate + application.loans.days, a mesma regra da varredura
+@Component
+@Slf4j
+public class LoanDueQueue {
+
+    public static final String TIMER_JOB = "late-loans-timer";
+
+    private final LoanRepository loanRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final ApplicationEventPublisher publisher;
+
+    private final DelayQueue<Due> queue = new DelayQueue<>();
+
+    // Vencimento atual de cada empréstimo aberto na fila
+    private final Map<Long, LocalDate> scheduled = new ConcurrentHashMap<>();
+
+    // Vencimento dos empréstimos cujo lote falhou e espera nova tentativa
+    private final Map<Long, LocalDate> retrying = new ConcurrentHashMap<>();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    // Último dia de vencimento já publicado; na subida só entram os vencimentos depois dele
+    private LocalDate firedUntil;
+
+    @Value("${application.loans.late.mode:timer}")
+    private String mode = "timer";
+
+    @Value("${application.loans.days:4}")
+    private int loanDays = 4;
+
+    @Value("${application.loans.late.timer.batch-size:500}")
+    private int batchSize = 500;
+
+    // Espera entre tentativas quando a notificação de um lote falha
+    @Value("${application.loans.late.timer.retry-delay-ms:60000}")
+    private long retryDelayMillis = 60000;
+
+    @Value("${application.loans.late.timer.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    private ZoneId zone = ZoneId.systemDefault();
+
+    public LoanDueQueue(LoanRepository loanRepository,
+                        JobCheckpointRepository checkpointRepository,
+                        ApplicationEventPublisher publisher) {
+        this.loanRepository = loanRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.publisher = publisher;
+    }
+
+    public boolean isEnabled() {
+        return "timer".equalsIgnoreCase(mode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (isEnabled()) {
+            load();
+            start();
+        }
+    }
+
+    // Vencimentos que caíram com a aplicação parada disparam logo na subida.
+    // Sem checkpoint (primeira subida) entram todos os abertos e os já vencidos disparam na hora
+    public void load() {
+        long start = System.currentTimeMillis();
+        firedUntil = checkpointRepository.findById(TIMER_JOB)
+                .map(JobCheckpoint::getRunDate)
+                .orElse(null);
+        List<Object[]> loans = firedUntil == null
+                ? loanRepository.findOpenLoanDates()
+                : loanRepository.findOpenLoanDatesAfter(firedUntil.minusDays(loanDays));
+        for (Object[] loan : loans) {
+            schedule((Long) loan[0], (LocalDate) loan[1]);
+        }
+        log.info("Fila de vencimentos carregada: {} empréstimos abertos vencendo depois de {} em {} ms",
+                loans.size(), firedUntil != null ? firedUntil : "o início", System.currentTimeMillis() - start);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::consume, "loan-due-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    public void markLoaned(Loan loan) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> schedule(loan.getId(), loan.getLoanDate()));
+        }
+    }
+
+    public void markLoaned(Collection<Loan> loans) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> loans.forEach(loan -> schedule(loan.getId(), loan.getLoanDate())));
+        }
+    }
+
+    public void markReturned(Long loanId) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> scheduled.remove(loanId));
+        }
+    }
+
+    public void markReturned(Collection<Long> loanIds) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> loanIds.forEach(scheduled::remove));
+        }
+    }
+
+    public int size() {
+        return scheduled.size();
+    }
+
+    void schedule(Long loanId, LocalDate loanDate) {
+        if (loanId == null || loanDate == null) {
+            return;
+        }
+        LocalDate dueDate = loanDate.plusDays(loanDays);
+        schedule(loanId, dueDate, dueDate.atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+
+    void schedule(Long loanId, LocalDate dueDate, long dueAtMillis) {
+        scheduled.put(loanId, dueDate);
+        queue.add(new Due(loanId, dueDate, dueAtMillis, 0));
+    }
+
+    private void consume() {
+        while (running) {
+            List<Due> due = new ArrayList<>();
+            try {
+                due.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Os que venceram juntos seguem no mesmo evento, até batchSize
+            queue.drainTo(due, batchSize - 1);
+            fire(due);
+        }
+    }
+
+    private void fire(List<Due> due) {
+        List<Due> firing = new ArrayList<>();
+        LocalDate last = null;
+        for (Due entry : due) {
+            retrying.remove(entry.loanId, entry.dueDate);
+            // Entradas de empréstimos devolvidos ou reagendados são descartadas aqui
+            if (entry.dueDate.equals(scheduled.get(entry.loanId))) {
+                firing.add(entry);
+            }
+            if (last == null || entry.dueDate.isAfter(last)) {
+                last = entry.dueDate;
+            }
+        }
+        if (!firing.isEmpty()) {
+            try {
+                publisher.publishEvent(new LoansOverdueEvent(firing.stream()
+                        .map(entry -> entry.loanId)
+                        .collect(Collectors.toList())));
+                firing.forEach(entry -> scheduled.remove(entry.loanId, entry.dueDate));
+            } catch (RuntimeException e) {
+                retry(firing, e);
+            }
+        }
+        advance(last);
+    }
+
+    // O lote que falhou volta para a fila depois de retryDelayMillis, sem segurar os próximos vencimentos.
+    // Esgotadas as tentativas, os empréstimos saem da fila e ficam registrados no log
+    private void retry(List<Due> failed, RuntimeException error) {
+        long retryAt = System.currentTimeMillis() + retryDelayMillis;
+        List<Long> dropped = new ArrayList<>();
+        for (Due entry : failed) {
+            if (entry.attempts + 1 >= maxAttempts) {
+                scheduled.remove(entry.loanId, entry.dueDate);
+                dropped.add(entry.loanId);
+            } else {
+                retrying.put(entry.loanId, entry.dueDate);
+                queue.add(new Due(entry.loanId, entry.dueDate, retryAt, entry.attempts + 1));
+            }
+        }
+        log.error("Falha ao notificar {} empréstimos vencidos, {} voltam em {} ms: {}",
+                failed.size(), failed.size() - dropped.size(), retryDelayMillis, error.getMessage());
+        if (!dropped.isEmpty()) {
+            log.error("Empréstimos vencidos não notificados após {} tentativas: {}", maxAttempts, dropped);
+        }
+    }
+
+    // O dia só conta como publicado quando não resta na fila outro vencimento dele,
+    // nem um lote dele esperando nova tentativa
+    private void advance(LocalDate last) {
+        Due next = queue.peek();
+        LocalDate until = next != null && !next.dueDate.isAfter(last) ? last.minusDays(1) : last;
+        LocalDate oldestRetry = retrying.values().stream().min(LocalDate::compareTo).orElse(null);
+        if (oldestRetry != null && !oldestRetry.isAfter(until)) {
+            until = oldestRetry.minusDays(1);
+        }
+        if (firedUntil != null && !until.isAfter(firedUntil)) {
+            return;
+        }
+        firedUntil = until;
+        try {
+            checkpointRepository.save(JobCheckpoint.builder()
+                    .name(TIMER_JOB)
+                    .runDate(until)
+                    .lastId(0L)
+                    .completed(true)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        } catch (RuntimeException e) {
+            log.error("Não foi possível gravar o checkpoint de {}: {}", TIMER_JOB, e.getMessage());
+        }
+    }
+
+    // Empréstimos que acabaram de vencer
+    @Getter
+    @AllArgsConstructor
+    public static class LoansOverdueEvent {
+        private final List<Long> loanIds;
+    }
+
+    private static final class Due implements Delayed {
+        private final Long loanId;
+        private final LocalDate dueDate;
+        private final long dueAtMillis;
+        private final int attempts;
+
+        private Due(Long loanId, LocalDate dueDate, long dueAtMillis, int attempts) {
+            this.loanId = loanId;
+            this.dueDate = dueDate;
+            this.dueAtMillis = dueAtMillis;
+            this.attempts = attempts;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Due) other).dueAtMillis);
+        }
+    }
+}
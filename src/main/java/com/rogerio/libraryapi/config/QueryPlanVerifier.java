@@ -0,0 +1,190 @@
+package com.rogerio.libraryapi.config;
+
+import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.repository.CustomerRepository;
+import com.rogerio.libraryapi.repository.LoanArchiveRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.repository.LoanSearchQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Na subida, executa as consultas dos repositórios com parâmetros de exemplo, captura o SQL que o
+// Hibernate gerou (SqlCapture) e roda EXPLAIN nele, conferindo se o plano usa o índice criado para a consulta.
+// As chamadas rodam numa transação somente leitura desfeita no final. O SqlCapture só é registrado no
+// perfil de teste (application-test.properties); fora dele application.db.plan-check fica off
+@Component
+@Slf4j
+public class QueryPlanVerifier {
+
+    private static final LocalDate SAMPLE_DATE = LocalDate.of(2000, 1, 1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<PlanCheck> checks;
+
+    @Value("${application.db.plan-check:warn}")
+    private String mode = "warn";
+
+    @Autowired
+    public QueryPlanVerifier(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             BookRepository bookRepository,
+                             LoanRepository loanRepository,
+                             CustomerRepository customerRepository,
+                             LoanArchiveRepository loanArchiveRepository) {
+        this(jdbcTemplate, transactionManager, checks(bookRepository, loanRepository, customerRepository,
+                loanArchiveRepository));
+    }
+
+    QueryPlanVerifier(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, List<PlanCheck> checks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.checks = checks;
+    }
+
+    static List<PlanCheck> checks(BookRepository bookRepository,
+                                  LoanRepository loanRepository,
+                                  CustomerRepository customerRepository,
+                                  LoanArchiveRepository loanArchiveRepository) {
+        PageRequest page = PageRequest.of(0, 10, Sort.by("id"));
+        return Arrays.asList(
+                PlanCheck.repository("BookRepository.findByIsbn", "idx_book_isbn",
+                        () -> bookRepository.findByIsbn("1234")),
+                PlanCheck.repository("BookRepository.existsByIsbn", "idx_book_isbn",
+                        () -> bookRepository.existsByIsbn("1234")),
+                PlanCheck.repository("BookRepository.findExistingIsbns", "idx_book_isbn",
+                        () -> bookRepository.findExistingIsbns(Arrays.asList("1234", "5678"))),
+                PlanCheck.repository("BookRepository.findDTOByAvailableAndFilter", "idx_book_available",
+                        () -> bookRepository.findDTOByAvailableAndFilter(true, null, null, null, null, page)),
+                PlanCheck.repository("LoanRepository.existsByBookAndNotReturned", "idx_loan_book_returned",
+                        () -> loanRepository.existsByBookAndNotReturned(bookRepository.getOne(1L))),
+                PlanCheck.repository("LoanRepository.findByBook", "idx_loan_book",
+                        () -> loanRepository.findByBook(bookRepository.getOne(1L), page)),
+                PlanCheck.repository("LoanRepository.findByLoanDateLessThanAndNotReturned", "idx_loan_date_returned",
+                        () -> loanRepository.findByLoanDateLessThanAndNotReturned(SAMPLE_DATE)),
+                PlanCheck.search("LoanSearchQuery (customer)", "idx_loan_customer",
+                        LoanFilterDTO.builder().customer("Fulano").build()),
+                PlanCheck.search("LoanSearchQuery (isbn)", "idx_book_isbn",
+                        LoanFilterDTO.builder().isbn("1234").build()),
+                PlanCheck.repository("CustomerRepository.findByEmail", "idx_customer_email",
+                        () -> customerRepository.findByEmail("fulano@email.com")),
+                PlanCheck.repository("LoanRepository.findDTOByCustomerId", "idx_loan_customer_cover",
+                        () -> loanRepository.findDTOByCustomerId(1L, page)),
+                PlanCheck.repository("LoanRepository.findOverdueByCustomerAfter", "idx_loan_customer_cover",
+                        () -> loanRepository.findOverdueByCustomerAfter(SAMPLE_DATE, 0L, Long.MAX_VALUE,
+                                PageRequest.of(0, 10))),
+                PlanCheck.repository("LoanRepository.findOpenLoanDatesAfter", "idx_loan_date_returned",
+                        () -> loanRepository.findOpenLoanDatesAfter(SAMPLE_DATE)),
+                PlanCheck.repository("LoanArchiveRepository.findDTOByBookId", "idx_loan_archive_book",
+                        () -> loanArchiveRepository.findDTOByBookId(1L, page)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if ("off".equalsIgnoreCase(mode)) {
+            return;
+        }
+        List<String> problems = verify();
+        if (problems.isEmpty()) {
+            log.info("Planos de consulta conferidos: {} consultas usam os índices esperados", checks.size());
+            return;
+        }
+        problems.forEach(problem -> log.warn("Plano de consulta sem índice: {}", problem));
+        if ("fail".equalsIgnoreCase(mode)) {
+            throw new IllegalStateException("Consultas sem o índice esperado: " + problems);
+        }
+    }
+
+    // Retorna as consultas cujo plano não cita o índice esperado
+    public List<String> verify() {
+        List<String> problems = new ArrayList<>();
+        for (PlanCheck check : checks) {
+            String plan;
+            try {
+                plan = explain(sqlOf(check));
+            } catch (RuntimeException e) {
+                problems.add(check.name + ": EXPLAIN falhou (" + e.getMessage() + ")");
+                continue;
+            }
+            if (!check.usedBy(plan)) {
+                problems.add(check.name + ": esperado " + check.index + ", plano " + plan);
+            }
+        }
+        return problems;
+    }
+
+    // O primeiro comando é a consulta do repositório; os seguintes seriam cargas de associações
+    private String sqlOf(PlanCheck check) {
+        List<String> statements = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return check.statements.get();
+        });
+        if (statements == null || statements.isEmpty()) {
+            throw new IllegalStateException("nenhum SQL capturado, SqlCapture não registrado");
+        }
+        return statements.get(0);
+    }
+
+    // O H2 monta o plano sem os valores dos parâmetros; cada banco devolve o plano em um formato
+    private String explain(String sql) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("explain " + sql);
+        return rows.stream()
+                .flatMap(row -> row.values().stream())
+                .map(String::valueOf)
+                .collect(Collectors.joining(" "));
+    }
+
+    static class PlanCheck {
+        private final String name;
+        private final String index;
+        private final Supplier<List<String>> statements;
+        private final Pattern indexName;
+
+        private PlanCheck(String name, String index, Supplier<List<String>> statements) {
+            this.name = name;
+            this.index = index;
+            this.statements = statements;
+            // Nome inteiro: idx_loan_book não vale por idx_loan_book_returned
+            this.indexName = Pattern.compile("\\b" + Pattern.quote(index) + "\\b");
+        }
+
+        private boolean usedBy(String plan) {
+            return indexName.matcher(plan.toLowerCase(Locale.ROOT)).find();
+        }
+
+        // Consulta de repositório JPA: o SQL é o que o Hibernate gerou ao executá-la
+        static PlanCheck repository(String name, String index, Runnable query) {
+            return new PlanCheck(name, index, () -> SqlCapture.capture(query));
+        }
+
+        // Busca JDBC de empréstimos: o SQL é o mesmo montado por LoanSearchQuery para a listagem
+        static PlanCheck search(String name, String index, LoanFilterDTO filter) {
+            return new PlanCheck(name, index, () -> Collections.singletonList(NamedParameterUtils
+                    .parseSqlStatementIntoString(LoanSearchQuery.of(filter).selectDTOs(Sort.unsorted()))));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.rogerio.libraryapi.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Guarda o SQL que o Hibernate gera na thread atual enquanto capture está ativo; fora dele só repassa o SQL.
+// Registrado em hibernate.session_factory.statement_inspector no perfil de teste (application-test.properties)
+public class SqlCapture implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<String> captured = CAPTURED.get();
+        if (captured != null) {
+            captured.add(sql);
+        }
+        return sql;
+    }
+
+    // SQL emitido pelo Hibernate durante a execução da ação, na ordem
+    public static List<String> capture(Runnable action) {
+        List<String> previous = CAPTURED.get();
+        List<String> captured = new ArrayList<>();
+        CAPTURED.set(captured);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                CAPTURED.remove();
+            } else {
+                CAPTURED.set(previous);
+            }
+        }
+        return captured;
+    }
+}
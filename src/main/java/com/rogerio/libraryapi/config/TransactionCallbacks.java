@@ -0,0 +1,25 @@
+package com.rogerio.libraryapi.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Ações sobre estado em memória (índices e filas) que só devem refletir o que foi efetivado no banco
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    // Roda depois do commit da transação atual; sem transação, roda na hora
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.rogerio.libraryapi.controller;
 
+import com.rogerio.libraryapi.cache.BookJsonCache;
 import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.BookImportResultDTO;
+import com.rogerio.libraryapi.dto.CursorPageDTO;
 import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
-import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.mapper.BookMapper;
+import com.rogerio.libraryapi.service.BookImportService;
 import com.rogerio.libraryapi.service.BookService;
+import com.rogerio.libraryapi.service.LoanArchiveService;
 import com.rogerio.libraryapi.service.LoanService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -12,17 +18,20 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/books")
@@ -32,8 +41,13 @@ import java.util.stream.Collectors;
 public class BookController {
 
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
     private final LoanService loanService;
+    private final BookImportService bookImportService;
+    private final BookJsonCache bookJsonCache;
+    private final LoanArchiveService loanArchiveService;
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
 
 
     @PostMapping
@@ -43,23 +57,44 @@ public class BookController {
 
         log.info("Criando um livro para o isbn: {}", bookDTO.getIsbn());
 
-        Book entity = modelMapper.map(bookDTO, Book.class);
+        Book entity = bookMapper.toEntity(bookDTO);
 
         entity = bookService.save(entity);
 
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDTO(entity);
+    }
+
+    @PostMapping(value = "import", consumes = {NDJSON_VALUE, "text/csv"})
+    @ApiOperation("Importar livros em lote (NDJSON ou CSV)")
+    public BookImportResultDTO importBooks(HttpServletRequest request) throws IOException {
+
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        BookImportService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType(NDJSON_VALUE))
+                ? BookImportService.Format.NDJSON
+                : BookImportService.Format.CSV;
+
+        log.info("Importando livros no formato: {}", format);
+
+        // Lê o corpo da requisição em streaming, sem carregar o arquivo inteiro
+        return bookImportService.importBooks(request.getInputStream(), format);
     }
 
     @GetMapping("{id}")
-    @ApiOperation("Obter um livro por ID")
-    public BookDTO get(@PathVariable Long id){
+    @ApiOperation(value = "Obter um livro por ID", response = BookDTO.class)
+    public ResponseEntity<byte[]> get(@PathVariable Long id, WebRequest request){
 
         log.info("Obtendo um livro pelo Id:", id);
 
-        return bookService
-                .getById(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
+        VersionDTO version = requireBook(id);
+        if (ConditionalRequests.notModified(request, version, "book", id)) {
+            return null;
+        }
+
+        // JSON já serializado da versão atual, escrito direto na resposta
+        byte[] json = bookJsonCache
+                .get(id, version.getVersion(), bookService::getDTOById)
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     @DeleteMapping("{id}")
@@ -91,39 +126,87 @@ public class BookController {
         book.setTitle(dto.getTitle());
         book = bookService.update(book);
 
-        return modelMapper.map(book, BookDTO.class);
+        return bookMapper.toDTO(book);
     }
 
+    // Sem GET condicional: o validador da coleção inteira custaria uma agregação na tabela a cada busca
     @GetMapping
-    @ApiOperation("Buscar livros por parâmetros")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
+    @ApiOperation(value = "Buscar livros por parâmetros",
+            notes = "Sem sort e sem available, título e autor casam por palavra (prefixo) e o resultado vem por " +
+                    "relevância; nos demais casos casam por trecho. O isbn casa por trecho e o id pelo valor exato")
+    public Page<BookDTO> find(BookDTO dto,
+                              @RequestParam(required = false) Boolean available,
+                              Pageable pageRequest){
 
         log.info("Buscando livros pelos parâmetros : {}", dto.getIsbn());
 
-        Book filter = modelMapper.map(dto, Book.class);
+        Book filter = bookMapper.toEntity(dto);
+        filter.setAvailable(available);
 
-        Page<Book> result = bookService.find(filter, pageRequest);
+        Page<BookDTO> result = bookService.findDTO(filter, pageRequest);
 
-        List<BookDTO> list = result.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
-                .collect(Collectors.toList());
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        return new PageImpl<BookDTO>(result.getContent(), pageRequest, result.getTotalElements());
+    }
+
+    @GetMapping(params = "cursor")
+    @ApiOperation(value = "Buscar livros por parâmetros com paginação por cursor",
+            notes = "Sem available, título e autor casam por palavra (prefixo); com available, por trecho. " +
+                    "O isbn casa por trecho e o id pelo valor exato. Resultado em ordem de id")
+    public CursorPageDTO<BookDTO> findByCursor(BookDTO dto,
+                                               @RequestParam(required = false) Boolean available,
+                                               @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "" + CursorPagination.DEFAULT_SIZE) int size){
+
+        log.info("Buscando livros por cursor pelos parâmetros : {}", dto.getIsbn());
+
+        Book filter = bookMapper.toEntity(dto);
+        filter.setAvailable(available);
+
+        Slice<BookDTO> result = bookService.findDTOAfter(filter, CursorPagination.decode(cursor), CursorPagination.size(size));
+
+        return CursorPagination.toPage(result, book -> book, BookDTO::getId);
     }
 
     // Mapeando um subrecurso
     @GetMapping("{id}/loans")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
-        Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        Page<Loan> result = loanService.getLoansByBook(book, pageable);
-        List<LoanDTO> list = result.getContent()
-                .stream()
-                .map(loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBookDTO(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
+    public Page<LoanDTO> loansByBook(@PathVariable Long id,
+                                     @RequestParam(defaultValue = "false") boolean history,
+                                     Pageable pageable,
+                                     WebRequest request){
+        VersionDTO[] versions = {requireBook(id), loanService.getVersionByBook(id)};
+        if (ConditionalRequests.collectionNotModified(request, versions, "book-loans", id, history, pageable)) {
+            return null;
+        }
+        // history=true inclui os empréstimos arquivados
+        Page<LoanDTO> result = history
+                ? loanArchiveService.getLoanHistoryByBook(id, pageable)
+                : loanService.getLoanDTOsByBook(id, pageable);
+        return new PageImpl<LoanDTO>(result.getContent(), pageable, result.getTotalElements());
+    }
+
+    @GetMapping(value = "{id}/loans", params = "cursor")
+    public CursorPageDTO<LoanDTO> loansByBookByCursor(@PathVariable Long id,
+                                                      @RequestParam(defaultValue = "false") boolean history,
+                                                      @RequestParam String cursor,
+                                                      @RequestParam(defaultValue = "" + CursorPagination.DEFAULT_SIZE) int size,
+                                                      WebRequest request){
+        VersionDTO[] versions = {requireBook(id), loanService.getVersionByBook(id)};
+        if (ConditionalRequests.collectionNotModified(request, versions, "book-loans", id, history, cursor, size)) {
+            return null;
+        }
+        Long afterId = CursorPagination.decode(cursor);
+        Slice<LoanDTO> result = history
+                ? loanArchiveService.getLoanHistoryByBookAfter(id, afterId, CursorPagination.size(size))
+                : loanService.getLoanDTOsByBookAfter(id, afterId, CursorPagination.size(size));
+        return CursorPagination.toPage(result, loan -> loan, LoanDTO::getId);
+    }
+
+    // Validador do livro, que também confirma a existência sem carregar a entidade
+    private VersionDTO requireBook(Long id) {
+        VersionDTO version = bookService.getVersion(id);
+        if (version.getCount() == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return version;
     }
 }
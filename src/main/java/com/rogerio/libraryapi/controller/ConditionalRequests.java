@@ -0,0 +1,47 @@
+package com.rogerio.libraryapi.controller;
+
+import com.rogerio.libraryapi.dto.VersionDTO;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+
+// GET condicional: ETag forte a partir dos validadores do banco e, só para um recurso, Last-Modified pela
+// última alteração. Responde 304 antes de montar o DTO quando o cliente já tem a representação
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    // Recurso único: a data de alteração da própria linha vale como Last-Modified
+    static boolean notModified(WebRequest request, VersionDTO version, Object... parts) {
+        String etag = etag(new VersionDTO[]{version}, parts);
+        if (version.getUpdatedAt() == null) {
+            return request.checkNotModified(etag);
+        }
+        long lastModified = version.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    // Coleção: max(updatedAt) não muda quando uma linha é excluída, então só o ETag (que inclui a contagem).
+    // Só para subrecursos, cujos validadores usam o índice da chave (ex.: empréstimos de um livro);
+    // as buscas em /books e /loans não agregam a tabela inteira a cada requisição
+    static boolean collectionNotModified(WebRequest request, VersionDTO[] versions, Object... parts) {
+        return request.checkNotModified(etag(versions, parts));
+    }
+
+    // parts identifica a representação (recurso, filtros, página), os validadores o estado dos dados
+    private static String etag(VersionDTO[] versions, Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part).append('|');
+        }
+        for (VersionDTO version : versions) {
+            key.append(version.getCount()).append(':')
+                    .append(version.getVersion()).append(':')
+                    .append(version.getUpdatedAt()).append('|');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
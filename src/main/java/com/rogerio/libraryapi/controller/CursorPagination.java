@@ -0,0 +1,58 @@
+package com.rogerio.libraryapi.controller;
+
+import com.rogerio.libraryapi.dto.CursorPageDTO;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Paginação por cursor (keyset) baseada no id, sem consulta de contagem
+final class CursorPagination {
+
+    static final int DEFAULT_SIZE = 20;
+    static final int MAX_SIZE = 1000;
+
+    private static final String PREFIX = "id:";
+
+    private CursorPagination() {
+    }
+
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0l;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(value);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    static String encode(Long id) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int size(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    static <T, R> CursorPageDTO<R> toPage(Slice<T> slice, Function<T, R> mapper, Function<T, Long> idOf) {
+        List<T> content = slice.getContent();
+        List<R> mapped = content.stream().map(mapper).collect(Collectors.toList());
+        String next = slice.hasNext() && !content.isEmpty()
+                ? encode(idOf.apply(content.get(content.size() - 1)))
+                : null;
+        return new CursorPageDTO<>(mapped, mapped.size(), next);
+    }
+}
@@ -0,0 +1,54 @@
+package com.rogerio.libraryapi.controller;
+
+import com.rogerio.libraryapi.dto.CursorPageDTO;
+import com.rogerio.libraryapi.dto.CustomerLoanDTO;
+import com.rogerio.libraryapi.service.CustomerService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+@Api("Customer API")
+@Slf4j
+public class CustomerController {
+
+    private final CustomerService customerService;
+
+    @GetMapping("{id}/loans")
+    @ApiOperation("Listar os empréstimos de um cliente")
+    public Page<CustomerLoanDTO> loansByCustomer(@PathVariable Long id, Pageable pageable){
+
+        log.info("Buscando empréstimos do cliente: {}", id);
+
+        requireCustomer(id);
+        Page<CustomerLoanDTO> result = customerService.getLoans(id, pageable);
+        return new PageImpl<CustomerLoanDTO>(result.getContent(), pageable, result.getTotalElements());
+    }
+
+    @GetMapping(value = "{id}/loans", params = "cursor")
+    @ApiOperation("Listar os empréstimos de um cliente com paginação por cursor")
+    public CursorPageDTO<CustomerLoanDTO> loansByCustomerByCursor(@PathVariable Long id,
+                                                                  @RequestParam String cursor,
+                                                                  @RequestParam(defaultValue = "" + CursorPagination.DEFAULT_SIZE) int size){
+
+        log.info("Buscando empréstimos do cliente por cursor: {}", id);
+
+        requireCustomer(id);
+        Slice<CustomerLoanDTO> result = customerService.getLoansAfter(id, CursorPagination.decode(cursor), CursorPagination.size(size));
+        return CursorPagination.toPage(result, loan -> loan, CustomerLoanDTO::getId);
+    }
+
+    private void requireCustomer(Long id) {
+        customerService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
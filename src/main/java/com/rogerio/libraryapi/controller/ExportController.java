@@ -0,0 +1,81 @@
+package com.rogerio.libraryapi.controller;
+
+import com.rogerio.libraryapi.service.ExportService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@Api("Export API")
+@Slf4j
+public class ExportController {
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String CSV_VALUE = "text/csv";
+
+    private final ExportService exportService;
+
+    @GetMapping("books")
+    @ApiOperation("Exportar todos os livros (NDJSON ou CSV)")
+    public ResponseEntity<StreamingResponseBody> books(@RequestParam(defaultValue = "ndjson") String format,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        ExportService.Format exportFormat = parseFormat(format);
+        log.info("Exportando livros no formato: {}", exportFormat);
+        return stream("books", exportFormat, acceptEncoding,
+                output -> exportService.exportBooks(output, exportFormat));
+    }
+
+    @GetMapping("loans")
+    @ApiOperation("Exportar todos os empréstimos (NDJSON ou CSV)")
+    public ResponseEntity<StreamingResponseBody> loans(@RequestParam(defaultValue = "ndjson") String format,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        ExportService.Format exportFormat = parseFormat(format);
+        log.info("Exportando empréstimos no formato: {}", exportFormat);
+        return stream("loans", exportFormat, acceptEncoding,
+                output -> exportService.exportLoans(output, exportFormat));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name,
+                                                         ExportService.Format format,
+                                                         String acceptEncoding,
+                                                         StreamingResponseBody body){
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        String extension = format == ExportService.Format.CSV ? ".csv" : ".ndjson";
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format == ExportService.Format.CSV ? CSV_VALUE : NDJSON_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + extension + "\"");
+        if (!gzip) {
+            return response.body(body);
+        }
+        // Compressão feita durante a escrita, sem montar o arquivo em memória
+        return response
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(output -> {
+                    GZIPOutputStream gzipOutput = new GZIPOutputStream(output, 8192);
+                    body.writeTo(gzipOutput);
+                    gzipOutput.finish();
+                });
+    }
+
+    private ExportService.Format parseFormat(String format){
+        try {
+            return ExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid export format");
+        }
+    }
+}
@@ -1,25 +1,29 @@
 package com.rogerio.libraryapi.controller;
 
-import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.CursorPageDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutBatchDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutResultDTO;
 import com.rogerio.libraryapi.dto.LoanDTO;
 import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.dto.LoanReturnBatchDTO;
+import com.rogerio.libraryapi.dto.LoanReturnResultDTO;
 import com.rogerio.libraryapi.dto.ReturnedLoanDto;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.entity.Loan;
 import com.rogerio.libraryapi.service.BookService;
 import com.rogerio.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.Valid;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/loans")
@@ -28,7 +32,6 @@ public class LoanController {
 
     private final BookService bookService;
     private final LoanService loanService;
-    private final ModelMapper modelMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -40,6 +43,7 @@ public class LoanController {
         Loan entity = Loan.builder()
                 .book(book)
                 .customer(loanDTO.getCustomer())
+                .customerEmail(loanDTO.getCustomer_email())
                 .loanDate(LocalDate.now())
                 .build();
 
@@ -48,6 +52,14 @@ public class LoanController {
         return entity.getId();
     }
 
+    // Vários livros para o mesmo cliente numa transação; 409 quando nenhum empréstimo foi criado
+    @PostMapping("batch")
+    public ResponseEntity<LoanCheckoutResultDTO> createBatch(@RequestBody @Valid LoanCheckoutBatchDTO dto){
+        LoanCheckoutResultDTO result = loanService.checkout(dto.getCustomer(), dto.getCustomer_email(), dto.getIsbns(),
+                dto.getMode() == LoanCheckoutBatchDTO.Mode.PARTIAL);
+        return ResponseEntity.status(result.getLoaned() > 0 ? HttpStatus.CREATED : HttpStatus.CONFLICT).body(result);
+    }
+
     @PatchMapping("{id}")
     public void returnedBook(@PathVariable Long id,
                              @RequestBody ReturnedLoanDto dto){
@@ -57,18 +69,24 @@ public class LoanController {
         loanService.update(loan);
     }
 
+    // Devolução de vários empréstimos numa única transação, com o resultado de cada item
+    @PostMapping("returns")
+    public LoanReturnResultDTO returnBooks(@RequestBody LoanReturnBatchDTO dto){
+        return loanService.returnLoans(dto.getIds(), dto.getIsbns());
+    }
+
+    // Sem GET condicional: o validador da coleção inteira custaria uma agregação em empréstimos e livros a cada busca
     @GetMapping
     public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageable){
-        Page<Loan> result = loanService.find(dto, pageable);
-        List<LoanDTO> loans = result.getContent()
-                .stream()
-                .map( entity -> {
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBookDTO(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements());
+        Page<LoanDTO> result = loanService.findDTO(dto, pageable);
+        return new PageImpl<LoanDTO>(result.getContent(), pageable, result.getTotalElements());
+    }
+
+    @GetMapping(params = "cursor")
+    public CursorPageDTO<LoanDTO> findByCursor(LoanFilterDTO dto,
+                                               @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "" + CursorPagination.DEFAULT_SIZE) int size){
+        Slice<LoanDTO> result = loanService.findDTOAfter(dto, CursorPagination.decode(cursor), CursorPagination.size(size));
+        return CursorPagination.toPage(result, loan -> loan, LoanDTO::getId);
     }
 }
@@ -0,0 +1,19 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportRejectDTO {
+
+    private long line;
+
+    private String isbn;
+
+    private String reason;
+}
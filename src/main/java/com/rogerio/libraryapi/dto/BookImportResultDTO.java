@@ -0,0 +1,24 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportResultDTO {
+
+    private long imported;
+
+    private long rejected;
+
+    // Lista limitada, o total de rejeitados fica em rejected
+    private List<BookImportRejectDTO> rejects;
+
+    private long elapsedMillis;
+}
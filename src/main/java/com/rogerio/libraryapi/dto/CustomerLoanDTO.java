@@ -0,0 +1,20 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Empréstimo na listagem por cliente: só colunas de idx_loan_customer_cover
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerLoanDTO {
+    private Long id;
+    private Long bookId;
+    private LocalDate loanDate;
+    private Boolean returned;
+}
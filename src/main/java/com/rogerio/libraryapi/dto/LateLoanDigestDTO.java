@@ -0,0 +1,25 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resumo dos empréstimos atrasados de um cliente; loans guarda no máximo os primeiros, total conta todos
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LateLoanDigestDTO {
+    private Long customerId;
+    private String customer;
+    private String email;
+
+    @Builder.Default
+    private List<OverdueLoanDTO> loans = new ArrayList<>();
+
+    private int total;
+}
@@ -0,0 +1,31 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+// Empréstimo de vários livros para o mesmo cliente numa única requisição
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanCheckoutBatchDTO {
+
+    // ALL_OR_NOTHING: nenhum empréstimo se algum livro falhar; PARTIAL: empresta os disponíveis
+    public enum Mode { ALL_OR_NOTHING, PARTIAL }
+
+    @NotEmpty
+    private String customer;
+
+    private String customer_email;
+
+    @NotEmpty
+    private List<String> isbns;
+
+    @Builder.Default
+    private Mode mode = Mode.ALL_OR_NOTHING;
+}
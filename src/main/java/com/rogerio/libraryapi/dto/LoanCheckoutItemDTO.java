@@ -0,0 +1,23 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanCheckoutItemDTO {
+
+    // SKIPPED: livro disponível, mas o lote foi recusado no modo ALL_OR_NOTHING
+    public enum Status { LOANED, UNAVAILABLE, NOT_FOUND, SKIPPED }
+
+    private String isbn;
+
+    // Id do empréstimo criado, quando LOANED
+    private Long loanId;
+
+    private Status status;
+}
@@ -0,0 +1,20 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanCheckoutResultDTO {
+
+    private long loaned;
+
+    // Um item por ISBN recebido, na ordem do pedido
+    private List<LoanCheckoutItemDTO> items;
+}
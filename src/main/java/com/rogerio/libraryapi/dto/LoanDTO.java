@@ -24,4 +24,10 @@ public class LoanDTO {
     private String customer_email;
 
     private BookDTO bookDTO;
+
+    // Usado nas consultas com "select new": empréstimo e livro na mesma linha
+    public LoanDTO(Long id, String customer, String customerEmail,
+                   Long bookId, String title, String author, String isbn) {
+        this(id, isbn, customer, customerEmail, new BookDTO(bookId, title, author, isbn));
+    }
 }
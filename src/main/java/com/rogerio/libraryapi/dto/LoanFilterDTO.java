@@ -5,7 +5,11 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 
+import java.time.LocalDate;
+
+// Filtros da listagem de empréstimos; só os preenchidos entram na consulta (combinados com AND)
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -13,4 +17,15 @@ import lombok.NoArgsConstructor;
 public class LoanFilterDTO {
     private String isbn;
     private String customer;
+
+    // Início do nome do cliente
+    private String customerPrefix;
+
+    private Boolean returned;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate loanDateFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate loanDateTo;
 }
@@ -0,0 +1,20 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Devolução em lote: empréstimos por id e/ou livros por ISBN (devolve o empréstimo aberto do livro)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanReturnBatchDTO {
+
+    private List<Long> ids;
+
+    private List<String> isbns;
+}
@@ -0,0 +1,22 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanReturnItemDTO {
+
+    public enum Status { RETURNED, ALREADY_RETURNED, NOT_LOANED, NOT_FOUND }
+
+    private Long loanId;
+
+    // Preenchido quando o item foi pedido por ISBN
+    private String isbn;
+
+    private Status status;
+}
@@ -0,0 +1,20 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanReturnResultDTO {
+
+    private long returned;
+
+    // Um item por id ou ISBN recebido, na ordem do pedido
+    private List<LoanReturnItemDTO> items;
+}
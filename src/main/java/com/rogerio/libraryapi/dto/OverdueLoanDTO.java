@@ -0,0 +1,23 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Empréstimo atrasado com o cliente e o livro na mesma linha, na ordem (cliente, id) do job de atrasados
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OverdueLoanDTO {
+    private Long id;
+    private Long customerId;
+    private String customer;
+    private String email;
+    private String title;
+    private String isbn;
+    private LocalDate loanDate;
+}
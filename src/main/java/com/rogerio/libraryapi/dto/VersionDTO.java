@@ -0,0 +1,21 @@
+package com.rogerio.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Validador de um recurso ou coleção: quantidade de linhas, soma das versões e última alteração
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VersionDTO {
+
+    private Long count;
+
+    private Long version;
+
+    private LocalDateTime updatedAt;
+
+}
@@ -3,6 +3,7 @@ package com.rogerio.libraryapi.entity;
 import lombok.*;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -10,11 +11,15 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "tb_book")
+@Table(name = "tb_book", indexes = {
+        @Index(name = "idx_book_isbn", columnList = "isbn", unique = true),
+        @Index(name = "idx_book_available", columnList = "available, id")})
 public class Book {
+    // Sequência com alocação em blocos, permite inserts em lote pelo Hibernate
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_sequence")
+    @SequenceGenerator(name = "book_sequence", sequenceName = "seq_book", allocationSize = 50)
     private Long id;
 
     @Column
@@ -26,8 +31,32 @@ public class Book {
     @Column
     private String isbn;
 
+    // Mantidos só pelos updates condicionais do BookRepository (admissão e devolução),
+    // o merge de um livro desatualizado não sobrescreve a disponibilidade
+    @Column(insertable = false, updatable = false)
+    private Boolean available;
+
+    @Column(name = "current_loan_id", insertable = false, updatable = false)
+    private Long currentLoanId;
+
+    // Incrementada a cada alteração da entidade; compõe o ETag
+    @Version
+    @Column
+    private Long version;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    // Fora de equals/hashCode/toString para não inicializar a coleção lazy
     @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private List<Loan> loans;
 
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
 
 }
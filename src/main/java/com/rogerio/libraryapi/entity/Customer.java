@@ -0,0 +1,41 @@
+package com.rogerio.libraryapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Cliente identificado pelo e-mail normalizado (minúsculo, sem espaços)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "tb_customer", indexes = {
+        @Index(name = "idx_customer_email", columnList = "email", unique = true)
+})
+public class Customer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_sequence")
+    @SequenceGenerator(name = "customer_sequence", sequenceName = "seq_customer", allocationSize = 50)
+    @Column
+    private Long id;
+
+    @Column(length = 100)
+    private String name;
+
+    @Column
+    private String email;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    void created() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,40 @@
+package com.rogerio.libraryapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Progresso de um job em lotes, permite retomar uma execução interrompida
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_job_checkpoint")
+public class JobCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    // Último id processado sem lacunas até ele
+    @Column(name = "last_id")
+    private Long lastId;
+
+    @Column
+    private Boolean completed;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -7,17 +7,25 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "tb_loan")
+@Table(name = "tb_loan", indexes = {
+        @Index(name = "idx_loan_book", columnList = "id_book"),
+        @Index(name = "idx_loan_book_returned", columnList = "id_book, returned"),
+        @Index(name = "idx_loan_date_returned", columnList = "loanDate, returned"),
+        @Index(name = "idx_loan_customer", columnList = "customer"),
+        @Index(name = "idx_loan_customer_cover", columnList = "id_customer, id, id_book, loanDate, returned")
+})
 public class Loan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_sequence")
+    @SequenceGenerator(name = "loan_sequence", sequenceName = "seq_loan", allocationSize = 50)
     @Column
     private Long id;
 
@@ -31,9 +39,35 @@ public class Loan {
     @Column
     private LocalDate loanDate;
 
-    @Column
+    @Column(nullable = false)
     private Boolean returned;
 
     @Column(name = "customer_email")
     private String customerEmail;
+
+    // Cliente cadastrado (tb_customer); customer e customerEmail guardam o que foi informado no empréstimo
+    @Column(name = "id_customer")
+    private Long customerId;
+
+    // Id do livro enquanto o empréstimo está aberto; a restrição única impede dois empréstimos abertos
+    @Column(name = "open_book_id", unique = true)
+    private Long openBookId;
+
+    // Incrementada a cada alteração da entidade; compõe o ETag
+    @Version
+    @Column
+    private Long version;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+        // Coluna obrigatória: empréstimo sem indicação está aberto
+        if (returned == null) {
+            returned = false;
+        }
+    }
 }
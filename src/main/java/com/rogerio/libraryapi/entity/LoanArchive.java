@@ -0,0 +1,52 @@
+package com.rogerio.libraryapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Empréstimo devolvido movido de tb_loan; mantém o id original para intercalar com o histórico quente
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_loan_archive", indexes = @Index(name = "idx_loan_archive_book", columnList = "id_book"))
+public class LoanArchive {
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column(length = 100)
+    private String customer;
+
+    @JoinColumn(name = "id_book")
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Book book;
+
+    @Column
+    private LocalDate loanDate;
+
+    @Column
+    private Boolean returned;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "id_customer")
+    private Long customerId;
+
+    @Column
+    private Long version;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
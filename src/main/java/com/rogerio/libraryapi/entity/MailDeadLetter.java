@@ -0,0 +1,40 @@
+package com.rogerio.libraryapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Mensagem que esgotou as tentativas de envio, fica guardada para reenvio manual
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_mail_dead_letter")
+public class MailDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column
+    private String recipients;
+
+    @Lob
+    @Column
+    private String message;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column
+    private Integer attempts;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
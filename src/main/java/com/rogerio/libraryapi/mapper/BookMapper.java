@@ -0,0 +1,27 @@
+package com.rogerio.libraryapi.mapper;
+
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.entity.Book;
+
+// Conversão direta entre Book e BookDTO, sem reflexão
+public class BookMapper {
+
+    public BookDTO toDTO(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    public Book toEntity(BookDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        Book book = new Book();
+        book.setId(dto.getId());
+        book.setTitle(dto.getTitle());
+        book.setAuthor(dto.getAuthor());
+        book.setIsbn(dto.getIsbn());
+        return book;
+    }
+}
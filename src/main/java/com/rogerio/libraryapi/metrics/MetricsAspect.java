@@ -0,0 +1,78 @@
+package com.rogerio.libraryapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Mede o tempo de cada método dos serviços e repositórios de livros e empréstimos.
+// Tags de baixa cardinalidade: componente, método e classe da exceção
+@Aspect
+@Component
+public class MetricsAspect {
+
+    static final String SERVICE_METRIC = "library.service";
+    static final String REPOSITORY_METRIC = "library.repository";
+
+    static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    // Timers de sucesso por componente e método, evita a busca no registry a cada chamada
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.rogerio.libraryapi.service.BookService+.*(..))")
+    public Object bookService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, SERVICE_METRIC, "BookService");
+    }
+
+    @Around("execution(* com.rogerio.libraryapi.service.LoanService+.*(..))")
+    public Object loanService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, SERVICE_METRIC, "LoanService");
+    }
+
+    @Around("this(com.rogerio.libraryapi.repository.BookRepository)")
+    public Object bookRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, REPOSITORY_METRIC, "BookRepository");
+    }
+
+    @Around("this(com.rogerio.libraryapi.repository.LoanRepository)")
+    public Object loanRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, REPOSITORY_METRIC, "LoanRepository");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String metric, String component) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            timers.computeIfAbsent(metric + component + method,
+                    key -> timer(metric, component, method, NO_EXCEPTION))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(metric, component, method, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(String metric, String component, String method, String exception) {
+        return Timer.builder(metric)
+                .tag("class", component)
+                .tag("method", method)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -1,9 +1,23 @@
 package com.rogerio.libraryapi.repository;
 
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
 
@@ -11,4 +25,121 @@ public interface BookRepository extends JpaRepository<Book, Long> {
 
     Optional<Book> findByIsbn(String isbn);
 
+    @Query(value=" select b.isbn from Book b where b.isbn in :isbns ")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    // Mesmo critério do Example usado em BookServiceImp: id exato e textos por contém, sem diferenciar maiúsculas,
+    // ignorando nulos
+    String BOOK_FILTER = " ( :id is null or b.id = :id ) " +
+            " and ( :title is null or lower(b.title) like lower(concat('%', :title, '%')) ) " +
+            " and ( :author is null or lower(b.author) like lower(concat('%', :author, '%')) ) " +
+            " and ( :isbn is null or lower(b.isbn) like lower(concat('%', :isbn, '%')) ) ";
+
+    @Query(value=" select b from Book b where b.id > :afterId and " + BOOK_FILTER)
+    Slice<Book> findAfter(
+            @Param("afterId") Long afterId,
+            @Param("id") Long id,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            Pageable pageable);
+
+    // Projeções para leitura: nenhuma entidade gerenciada, nada para o dirty checking
+    String BOOK_DTO = " select new com.rogerio.libraryapi.dto.BookDTO( b.id, b.title, b.author, b.isbn ) ";
+
+    @Query(value = BOOK_DTO + " from Book b where b.id = :id ")
+    Optional<BookDTO> findDTOById(@Param("id") Long id);
+
+    @Query(value = BOOK_DTO + " from Book b where b.id in :ids ")
+    List<BookDTO> findDTOByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = BOOK_DTO + " from Book b where " + BOOK_FILTER,
+            countQuery = " select count(b) from Book b where " + BOOK_FILTER)
+    Page<BookDTO> findDTOByFilter(
+            @Param("id") Long id,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            Pageable pageable);
+
+    @Query(value = BOOK_DTO + " from Book b where b.id > :afterId and " + BOOK_FILTER)
+    Slice<BookDTO> findDTOAfter(
+            @Param("afterId") Long afterId,
+            @Param("id") Long id,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            Pageable pageable);
+
+    // Livros disponíveis pelo idx_book_available (available, id)
+    @Query(value = BOOK_DTO + " from Book b where b.available = :available and " + BOOK_FILTER,
+            countQuery = " select count(b) from Book b where b.available = :available and " + BOOK_FILTER)
+    Page<BookDTO> findDTOByAvailableAndFilter(
+            @Param("available") Boolean available,
+            @Param("id") Long id,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            Pageable pageable);
+
+    @Query(value = BOOK_DTO + " from Book b where b.available = :available and b.id > :afterId and " + BOOK_FILTER)
+    Slice<BookDTO> findDTOByAvailableAfter(
+            @Param("available") Boolean available,
+            @Param("afterId") Long afterId,
+            @Param("id") Long id,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            Pageable pageable);
+
+    // Validadores de GET condicional, sem carregar as entidades
+    String BOOK_VERSION = " select new com.rogerio.libraryapi.dto.VersionDTO( count(b), sum(b.version), max(b.updatedAt) ) ";
+
+    @Query(value = BOOK_VERSION + " from Book b where b.id = :id ")
+    VersionDTO findVersionById(@Param("id") Long id);
+
+    // Admissão do empréstimo: só uma transação consegue marcar o livro como indisponível.
+    // Os updates de disponibilidade não mudam a versão (o DTO é o mesmo), só a data de alteração
+    @Modifying
+    @Query(value = " update Book b set b.available = false, b.updatedAt = current_timestamp " +
+            " where b.id = :id and b.available = true ")
+    int checkOut(@Param("id") Long id);
+
+    // Reabertura de um empréstimo: aceita quando o livro está livre ou já aponta para o próprio empréstimo
+    @Modifying
+    @Query(value = " update Book b set b.available = false, b.currentLoanId = :loanId, b.updatedAt = current_timestamp " +
+            " where b.id = :id and ( b.available = true or b.currentLoanId = :loanId ) ")
+    int reopen(@Param("id") Long id, @Param("loanId") Long loanId);
+
+    @Modifying
+    @Query(value = " update Book b set b.currentLoanId = :loanId where b.id = :id ")
+    int setCurrentLoan(@Param("id") Long id, @Param("loanId") Long loanId);
+
+    // Empréstimo em lote: resolve os ISBNs e trava os livros (em ordem de id) numa única consulta
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = " select b from Book b where b.isbn in :isbns order by b.id ")
+    List<Book> lockByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    // Marca os livros como emprestados apontando para o empréstimo aberto de cada um
+    @Modifying
+    @Query(value = " update Book b set b.available = false, b.updatedAt = current_timestamp, " +
+            " b.currentLoanId = ( select l.id from Loan l where l.openBookId = b.id ) " +
+            " where b.id in :ids and b.available = true ")
+    int checkOutAll(@Param("ids") Collection<Long> ids);
+
+    // Empréstimo aberto de cada ISBN (isbn, currentLoanId) para a devolução em lote
+    @Query(value = " select b.isbn, b.currentLoanId from Book b where b.isbn in :isbns ")
+    List<Object[]> findCurrentLoanIdsByIsbn(@Param("isbns") Collection<String> isbns);
+
+    @Modifying
+    @Query(value = " update Book b set b.available = true, b.currentLoanId = null, b.updatedAt = current_timestamp " +
+            " where b.currentLoanId in :loanIds ")
+    int checkInAll(@Param("loanIds") Collection<Long> loanIds);
+
+    // Devolução: libera o livro apenas se o empréstimo devolvido é o atual
+    @Modifying
+    @Query(value = " update Book b set b.available = true, b.currentLoanId = null, b.updatedAt = current_timestamp " +
+            " where b.id = :id and b.currentLoanId = :loanId ")
+    int checkIn(@Param("id") Long id, @Param("loanId") Long loanId);
+
 }
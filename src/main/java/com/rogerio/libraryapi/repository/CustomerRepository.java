@@ -0,0 +1,11 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.entity.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    Optional<Customer> findByEmail(String email);
+}
@@ -0,0 +1,7 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.entity.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
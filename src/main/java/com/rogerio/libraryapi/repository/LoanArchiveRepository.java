@@ -0,0 +1,46 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.entity.LoanArchive;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Long> {
+
+    // Trava só as linhas do lote; quem foi reaberto nesse meio tempo fica de fora
+    @Query(value = " select id from tb_loan where id in (:ids) and returned = true for update ", nativeQuery = true)
+    List<Long> lockReturned(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = " insert into tb_loan_archive " +
+            " (id, customer, id_book, loan_date, returned, customer_email, id_customer, version, updated_at, archived_at) " +
+            " select id, customer, id_book, loan_date, returned, customer_email, id_customer, version, updated_at, " +
+            " current_timestamp " +
+            " from tb_loan where id in (:ids) ", nativeQuery = true)
+    int copyToArchive(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = " delete from tb_loan where id in (:ids) ", nativeQuery = true)
+    int deleteFromLoans(@Param("ids") Collection<Long> ids);
+
+    String LOAN_ARCHIVE_DTO = " select new com.rogerio.libraryapi.dto.LoanDTO( " +
+            " a.id, a.customer, a.customerEmail, b.id, b.title, b.author, b.isbn ) ";
+
+    @Query(value = LOAN_ARCHIVE_DTO + " from LoanArchive a join a.book b where b.id = :bookId ",
+            countQuery = " select count(a) from LoanArchive a where a.book.id = :bookId ")
+    Page<LoanDTO> findDTOByBookId(@Param("bookId") Long bookId, Pageable pageable);
+
+    @Query(value = LOAN_ARCHIVE_DTO + " from LoanArchive a join a.book b where b.id = :bookId and a.id > :afterId ")
+    Slice<LoanDTO> findDTOByBookIdAfter(
+            @Param("bookId") Long bookId,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+}
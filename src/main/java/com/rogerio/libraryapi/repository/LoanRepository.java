@@ -1,30 +1,118 @@
 package com.rogerio.libraryapi.repository;
 
+import com.rogerio.libraryapi.dto.CustomerLoanDTO;
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.dto.OverdueLoanDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
     @Query(value=" select case when( count(l.id) > 0 ) then true else false end " +
-            " from Loan l where l.book = :book and (l.returned is null or l.returned is false )")
+            " from Loan l where l.book = :book and l.returned = false ")
     boolean existsByBookAndNotReturned(Book book);
 
-    @Query(value=" select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer ")
-    Page<Loan> findByBookIsbnOrCustomer(
-            @Param("isbn") String isbn,
-            @Param("customer") String customer,
-            Pageable pageable);
+    @Query(value=" select distinct l.book.id from Loan l where l.returned = false ")
+    List<Long> findNotReturnedBookIds();
 
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query(value=" select l from Loan l where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false ) ")
+    // Projeções para as listagens: empréstimo e livro em um único select, sem carregar as entidades
+    String LOAN_DTO = " select new com.rogerio.libraryapi.dto.LoanDTO( " +
+            " l.id, l.customer, l.customerEmail, b.id, b.title, b.author, b.isbn ) ";
+
+    // A contagem usa só a chave estrangeira, sem join com tb_book
+    @Query(value = LOAN_DTO + " from Loan l join l.book b where b.id = :bookId ",
+            countQuery = " select count(l) from Loan l where l.book.id = :bookId ")
+    Page<LoanDTO> findDTOByBookId(@Param("bookId") Long bookId, Pageable pageable);
+
+    @Query(value = LOAN_DTO + " from Loan l join l.book b where b.id = :bookId and l.id > :afterId ")
+    Slice<LoanDTO> findDTOByBookIdAfter(
+            @Param("bookId") Long bookId,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    // Empréstimos de um cliente lidos só de idx_loan_customer_cover (l.book.id é a própria chave estrangeira)
+    String CUSTOMER_LOAN_DTO = " select new com.rogerio.libraryapi.dto.CustomerLoanDTO( " +
+            " l.id, l.book.id, l.loanDate, l.returned ) from Loan l where l.customerId = :customerId ";
+
+    @Query(value = CUSTOMER_LOAN_DTO,
+            countQuery = " select count(l) from Loan l where l.customerId = :customerId ")
+    Page<CustomerLoanDTO> findDTOByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Query(value = CUSTOMER_LOAN_DTO + " and l.id > :afterId ")
+    Slice<CustomerLoanDTO> findDTOByCustomerIdAfter(
+            @Param("customerId") Long customerId,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    Slice<Loan> findByBookAndIdGreaterThan(Book book, Long afterId, Pageable pageable);
+
+    @Query(value=" select l from Loan l where l.loanDate <= :threeDaysAgo and l.returned = false ")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    // Atrasados em ordem de (cliente, id) para agrupar por cliente lendo em lotes; a primeira condição
+    // limita a faixa de idx_loan_customer_cover e a segunda continua dentro do último cliente lido
+    @Query(value = " select new com.rogerio.libraryapi.dto.OverdueLoanDTO( " +
+            " l.id, c.id, c.name, c.email, b.title, b.isbn, l.loanDate ) " +
+            " from Loan l join l.book b, Customer c where c.id = l.customerId " +
+            " and l.loanDate <= :dueBefore and l.returned = false " +
+            " and l.customerId >= :afterCustomerId and ( l.customerId > :afterCustomerId or l.id > :afterId ) " +
+            " order by l.customerId, l.id ")
+    List<OverdueLoanDTO> findOverdueByCustomerAfter(
+            @Param("dueBefore") LocalDate dueBefore,
+            @Param("afterCustomerId") Long afterCustomerId,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    // Mesma consulta por ids, para os empréstimos que a fila de vencimentos acabou de disparar
+    @Query(value = " select new com.rogerio.libraryapi.dto.OverdueLoanDTO( " +
+            " l.id, c.id, c.name, c.email, b.title, b.isbn, l.loanDate ) " +
+            " from Loan l join l.book b, Customer c where c.id = l.customerId " +
+            " and l.id in :ids and l.returned = false " +
+            " order by l.customerId, l.id ")
+    List<OverdueLoanDTO> findOverdueByIds(@Param("ids") Collection<Long> ids);
+
+    // Empréstimos abertos que vencem depois de uma data, para montar a fila de vencimentos
+    @Query(value = " select l.id, l.loanDate from Loan l " +
+            " where l.loanDate > :after and l.returned = false ")
+    List<Object[]> findOpenLoanDatesAfter(@Param("after") LocalDate after);
+
+    // Todos os empréstimos abertos, para a primeira carga da fila de vencimentos (sem checkpoint)
+    @Query(value = " select l.id, l.loanDate from Loan l where l.returned = false ")
+    List<Object[]> findOpenLoanDates();
+
+    // Candidatos ao arquivamento em ordem de id (keyset), lote a lote
+    @Query(value = " select l.id from Loan l where l.returned = true and l.loanDate < :before and l.id > :afterId ")
+    List<Long> findArchivableIds(
+            @Param("before") LocalDate before,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    // Devolução em lote: trava os empréstimos pedidos (em ordem de id) e retorna id, livro e devolvido
+    @Query(value = " select id, id_book, returned from tb_loan where id in (:ids) order by id for update ", nativeQuery = true)
+    List<Object[]> lockForReturn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = " update Loan l set l.returned = true, l.openBookId = null, " +
+            " l.version = l.version + 1, l.updatedAt = current_timestamp where l.id in :ids ")
+    int markReturned(@Param("ids") Collection<Long> ids);
+
+    // Validadores de GET condicional, sem carregar as entidades
+    String LOAN_VERSION = " select new com.rogerio.libraryapi.dto.VersionDTO( count(l), sum(l.version), max(l.updatedAt) ) ";
+
+    @Query(value = LOAN_VERSION + " from Loan l where l.book.id = :bookId ")
+    VersionDTO findVersionByBookId(@Param("bookId") Long bookId);
 }
@@ -0,0 +1,139 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Monta a busca de empréstimos só com os filtros preenchidos, sem OR entre colunas e sem
+// comparar com null, para que cada combinação tenha um plano sobre índice:
+// isbn -> idx_book_isbn e idx_loan_book, customer/prefixo -> idx_loan_customer,
+// período -> idx_loan_date_returned; só returned ou sem filtro -> chave primária na ordem do id
+public final class LoanSearchQuery {
+
+    static final String FROM = " from tb_loan l ";
+
+    // Início implícito do período quando só o fim é informado: com o intervalo fechado o otimizador
+    // usa idx_loan_date_returned; com só o limite superior o H2 estima o filtro como pouco seletivo
+    static final LocalDate MIN_LOAN_DATE = LocalDate.of(1900, 1, 1);
+
+    // O left join fixa a ordem: tb_loan é lido pelo índice do filtro e o livro vem pela chave primária.
+    // Com inner join o otimizador pode começar por um table scan de tb_book
+    static final String DTO_COLUMNS = " select l.id, l.customer, l.customer_email, b.id as book_id, " +
+            " b.title, b.author, b.isbn from tb_loan l left join tb_book b on b.id = l.id_book ";
+
+    // Propriedades aceitas na ordenação da listagem
+    static final Map<String, String> SORT_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", "l.id");
+        SORT_COLUMNS.put("customer", "l.customer");
+        SORT_COLUMNS.put("loanDate", "l.loan_date");
+        SORT_COLUMNS.put("returned", "l.returned");
+    }
+
+    private final List<String> predicates = new ArrayList<>();
+    private final MapSqlParameterSource parameters = new MapSqlParameterSource();
+
+    private LoanSearchQuery() {
+    }
+
+    public static LoanSearchQuery of(LoanFilterDTO filter) {
+        LoanSearchQuery query = new LoanSearchQuery();
+        if (filter == null) {
+            return query;
+        }
+        if (hasText(filter.getIsbn())) {
+            // Resolve o livro pelo índice do ISBN e filtra os empréstimos pela FK, sem join
+            query.add(" l.id_book = ( select b2.id from tb_book b2 where b2.isbn = :isbn ) ", "isbn", filter.getIsbn());
+        }
+        if (hasText(filter.getCustomer())) {
+            query.add(" l.customer = :customer ", "customer", filter.getCustomer());
+        }
+        if (hasText(filter.getCustomerPrefix())) {
+            query.add(" l.customer like :customerPrefix escape '\\' ",
+                    "customerPrefix", escapeLike(filter.getCustomerPrefix()) + "%");
+        }
+        if (filter.getLoanDateFrom() != null || filter.getLoanDateTo() != null) {
+            LocalDate from = filter.getLoanDateFrom() != null ? filter.getLoanDateFrom() : MIN_LOAN_DATE;
+            query.add(" l.loan_date >= :loanDateFrom ", "loanDateFrom", Date.valueOf(from));
+        }
+        if (filter.getLoanDateTo() != null) {
+            query.add(" l.loan_date <= :loanDateTo ", "loanDateTo", Date.valueOf(filter.getLoanDateTo()));
+        }
+        if (filter.getReturned() != null) {
+            query.predicates.add(filter.getReturned() ? " l.returned = true " : " l.returned = false ");
+        }
+        return query;
+    }
+
+    // Paginação por cursor: só os ids maiores que o último devolvido
+    public LoanSearchQuery after(Long afterId) {
+        if (afterId != null) {
+            add(" l.id > :afterId ", "afterId", afterId);
+        }
+        return this;
+    }
+
+    public String selectIds(Sort sort) {
+        return " select l.id " + FROM + where() + orderBy(sort);
+    }
+
+    public String selectDTOs(Sort sort) {
+        return DTO_COLUMNS + where() + orderBy(sort);
+    }
+
+    public String count() {
+        return " select count(*) " + FROM + where();
+    }
+
+    public MapSqlParameterSource getParameters() {
+        return parameters;
+    }
+
+    String where() {
+        return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+    }
+
+    public static boolean isSortable(String property) {
+        return SORT_COLUMNS.containsKey(property);
+    }
+
+    // O id fecha a ordenação para que a paginação seja estável
+    static String orderBy(Sort sort) {
+        List<String> columns = new ArrayList<>();
+        boolean hasId = false;
+        for (Sort.Order order : sort == null ? Sort.unsorted() : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                // A ordenação pedida é validada antes, no serviço (isSortable)
+                throw new IllegalArgumentException("Invalid sort property: " + order.getProperty());
+            }
+            hasId |= "id".equals(order.getProperty());
+            columns.add(column + (order.isDescending() ? " desc" : ""));
+        }
+        if (!hasId) {
+            columns.add("l.id");
+        }
+        return " order by " + String.join(", ", columns);
+    }
+
+    private void add(String predicate, String name, Object value) {
+        predicates.add(predicate);
+        parameters.addValue(name, value);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,85 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Listagem de empréstimos com o SQL montado por LoanSearchQuery a partir dos filtros preenchidos
+@Repository
+public class LoanSearchRepository {
+
+    static final RowMapper<LoanDTO> LOAN_DTO_MAPPER = (resultSet, row) -> new LoanDTO(
+            resultSet.getLong("id"),
+            resultSet.getString("customer"),
+            resultSet.getString("customer_email"),
+            // Pelo left join o livro pode faltar: null, não 0
+            resultSet.getObject("book_id", Long.class),
+            resultSet.getString("title"),
+            resultSet.getString("author"),
+            resultSet.getString("isbn"));
+
+    static final RowMapper<Long> ID_MAPPER = (resultSet, row) -> resultSet.getLong(1);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public LoanSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Page<LoanDTO> findDTO(LoanFilterDTO filter, Pageable pageable) {
+        LoanSearchQuery query = LoanSearchQuery.of(filter);
+        return page(query, query.selectDTOs(pageable.getSort()), LOAN_DTO_MAPPER, pageable);
+    }
+
+    public Slice<LoanDTO> findDTOAfter(LoanFilterDTO filter, Long afterId, int size) {
+        LoanSearchQuery query = LoanSearchQuery.of(filter).after(afterId);
+        return slice(query, query.selectDTOs(Sort.by("id")), LOAN_DTO_MAPPER, size);
+    }
+
+    public Page<Long> findIds(LoanFilterDTO filter, Pageable pageable) {
+        LoanSearchQuery query = LoanSearchQuery.of(filter);
+        return page(query, query.selectIds(pageable.getSort()), ID_MAPPER, pageable);
+    }
+
+    public Slice<Long> findIdsAfter(LoanFilterDTO filter, Long afterId, int size) {
+        LoanSearchQuery query = LoanSearchQuery.of(filter).after(afterId);
+        return slice(query, query.selectIds(Sort.by("id")), ID_MAPPER, size);
+    }
+
+    // A contagem só roda quando a página não revela o total, como nas consultas dos repositórios JPA
+    private <T> Page<T> page(LoanSearchQuery query, String sql, RowMapper<T> mapper, Pageable pageable) {
+        MapSqlParameterSource parameters = query.getParameters();
+        List<T> content;
+        if (pageable.isPaged()) {
+            content = jdbcTemplate.query(sql + " limit :limit offset :offset", new MapSqlParameterSource()
+                    .addValues(parameters.getValues())
+                    .addValue("limit", pageable.getPageSize())
+                    .addValue("offset", pageable.getOffset()), mapper);
+        } else {
+            content = jdbcTemplate.query(sql, parameters, mapper);
+        }
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> jdbcTemplate.queryForObject(query.count(), parameters, Long.class));
+    }
+
+    // Busca um item a mais para saber se há próxima página, sem contagem
+    private <T> Slice<T> slice(LoanSearchQuery query, String sql, RowMapper<T> mapper, int size) {
+        List<T> content = jdbcTemplate.query(sql + " limit :limit", new MapSqlParameterSource()
+                .addValues(query.getParameters().getValues())
+                .addValue("limit", size + 1), mapper);
+        boolean hasNext = content.size() > size;
+        return new SliceImpl<>(hasNext ? content.subList(0, size) : content, PageRequest.of(0, size), hasNext);
+    }
+}
@@ -0,0 +1,7 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.entity.MailDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MailDeadLetterRepository extends JpaRepository<MailDeadLetter, Long> {
+}
@@ -0,0 +1,256 @@
+package com.rogerio.libraryapi.search;
+
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Índice invertido em memória para busca de livros por título, autor e isbn.
+// Título e autor casam por palavra (prefixo, sem acentos e sem diferenciar maiúsculas); o isbn mantém o critério
+// "contém" das consultas no banco, ignorando hífens e espaços. Um id no filtro restringe o resultado a esse livro
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    public static final String MODE_INDEX = "index";
+    public static final String MODE_EXAMPLE = "example";
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final int EXACT_MATCH_SCORE = 2;
+    private static final int PARTIAL_MATCH_SCORE = 1;
+
+    enum Field { TITLE, AUTHOR, ISBN }
+
+    private final BookRepository bookRepository;
+
+    // Campo -> token -> ids dos livros
+    private final Map<Field, NavigableMap<String, Set<Long>>> postings = new EnumMap<>(Field.class);
+
+    // Id do livro -> tokens indexados por campo, usado para remover entradas antigas
+    private final Map<Long, Map<Field, Set<String>>> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    @Value("${application.books.search.mode:index}")
+    private String mode = MODE_INDEX;
+
+    @Value("${application.books.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize = 1000;
+
+    public BookSearchIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+        }
+    }
+
+    public boolean isReady() {
+        return ready && MODE_INDEX.equalsIgnoreCase(mode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (MODE_INDEX.equalsIgnoreCase(mode)) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        ready = false;
+        clear();
+
+        int page = 0;
+        Page<Book> books;
+        do {
+            books = bookRepository.findAll(PageRequest.of(page++, rebuildBatchSize, Sort.by("id")));
+            books.forEach(this::index);
+        } while (books.hasNext());
+
+        ready = true;
+        log.info("Índice de busca de livros reconstruído: {} livros em {} ms",
+                size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Map<Field, Set<String>> tokens = new EnumMap<>(Field.class);
+        tokens.put(Field.TITLE, tokenize(book.getTitle()));
+        tokens.put(Field.AUTHOR, tokenize(book.getAuthor()));
+        tokens.put(Field.ISBN, tokenizeIsbn(book.getIsbn()));
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            tokens.forEach((field, fieldTokens) -> fieldTokens.forEach(token -> postings.get(field)
+                    .computeIfAbsent(token, key -> new HashSet<>())
+                    .add(book.getId())));
+            documents.put(book.getId(), tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Retorna os ids ordenados por relevância, ou vazio quando o filtro não possui termos pesquisáveis
+    public Optional<List<Long>> search(Book filter) {
+        Map<Field, Set<String>> query = new EnumMap<>(Field.class);
+        query.put(Field.TITLE, tokenize(filter.getTitle()));
+        query.put(Field.AUTHOR, tokenize(filter.getAuthor()));
+        query.put(Field.ISBN, tokenizeIsbn(filter.getIsbn()));
+        if (query.values().stream().allMatch(Set::isEmpty)) {
+            return Optional.empty();
+        }
+
+        Map<Long, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Field, Set<String>> entry : query.entrySet()) {
+                for (String token : entry.getValue()) {
+                    Map<Long, Integer> tokenScores = entry.getKey() == Field.ISBN
+                            ? matchContaining(postings.get(Field.ISBN), token)
+                            : match(postings.get(entry.getKey()), token);
+                    scores = scores == null ? tokenScores : intersect(scores, tokenScores);
+                    if (scores.isEmpty()) {
+                        return Optional.of(Collections.emptyList());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (filter.getId() != null) {
+            scores.keySet().retainAll(Collections.singleton(filter.getId()));
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Long> ids = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> ids.add(entry.getKey()));
+        return Optional.of(ids);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // O isbn é indexado como um único token, ignorando hífens e espaços
+    static Set<String> tokenizeIsbn(String isbn) {
+        if (isbn == null || isbn.isBlank()) {
+            return Collections.emptySet();
+        }
+        String token = SEPARATORS.matcher(normalize(isbn)).replaceAll("");
+        return token.isEmpty() ? Collections.emptySet() : Collections.singleton(token);
+    }
+
+    private static String normalize(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<Long, Integer> match(NavigableMap<String, Set<Long>> fieldPostings, String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+        fieldPostings.subMap(token, true, token + Character.MAX_VALUE, true).forEach((indexed, ids) -> {
+            int score = indexed.equals(token) ? EXACT_MATCH_SCORE : PARTIAL_MATCH_SCORE;
+            ids.forEach(id -> scores.merge(id, score, Math::max));
+        });
+        return scores;
+    }
+
+    // Um isbn por livro: percorre os isbns indexados, sem tocar no banco
+    private static Map<Long, Integer> matchContaining(NavigableMap<String, Set<Long>> fieldPostings, String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+        fieldPostings.forEach((indexed, ids) -> {
+            if (indexed.contains(token)) {
+                int score = indexed.equals(token) ? EXACT_MATCH_SCORE : PARTIAL_MATCH_SCORE;
+                ids.forEach(id -> scores.merge(id, score, Math::max));
+            }
+        });
+        return scores;
+    }
+
+    private static Map<Long, Integer> intersect(Map<Long, Integer> scores, Map<Long, Integer> tokenScores) {
+        Map<Long, Integer> result = new HashMap<>();
+        scores.forEach((id, score) -> {
+            Integer tokenScore = tokenScores.get(id);
+            if (tokenScore != null) {
+                result.put(id, score + tokenScore);
+            }
+        });
+        return result;
+    }
+
+    private void removeDocument(Long id) {
+        Map<Field, Set<String>> tokens = documents.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        tokens.forEach((field, fieldTokens) -> fieldTokens.forEach(token -> {
+            Set<Long> ids = postings.get(field).get(token);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.get(field).remove(token);
+                }
+            }
+        }));
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.values().forEach(Map::clear);
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.dto.BookImportResultDTO;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Service
+public interface BookImportService {
+
+    enum Format { NDJSON, CSV }
+
+    BookImportResultDTO importBooks(InputStream input, Format format) throws IOException;
+}
@@ -1,8 +1,11 @@
 package com.rogerio.libraryapi.service;
 
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -19,6 +22,18 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, Long afterId, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
 
+    boolean existsById(Long id);
+
+    Optional<BookDTO> getDTOById(Long id);
+
+    Page<BookDTO> findDTO(Book filter, Pageable pageRequest);
+
+    Slice<BookDTO> findDTOAfter(Book filter, Long afterId, int size);
+
+    VersionDTO getVersion(Long id);
+
 }
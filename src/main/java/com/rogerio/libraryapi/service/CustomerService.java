@@ -0,0 +1,22 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.dto.CustomerLoanDTO;
+import com.rogerio.libraryapi.entity.Customer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+public interface CustomerService {
+
+    Optional<Customer> getById(Long id);
+
+    Long resolveId(String name, String email);
+
+    Page<CustomerLoanDTO> getLoans(Long customerId, Pageable pageable);
+
+    Slice<CustomerLoanDTO> getLoansAfter(Long customerId, Long afterId, int size);
+}
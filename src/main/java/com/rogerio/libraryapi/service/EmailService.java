@@ -3,8 +3,12 @@ package com.rogerio.libraryapi.service;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public interface EmailService {
-    void sendMails(String message, List<String> mailsList);
+    // Os futuros completam quando o servidor de e-mail aceita a mensagem, ou com erro quando ela vai para a dead letter
+    CompletableFuture<Void> sendMails(String message, List<String> mailsList);
+
+    CompletableFuture<Void> sendMail(String message, String recipient);
 }
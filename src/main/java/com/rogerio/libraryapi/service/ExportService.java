@@ -0,0 +1,16 @@
+package com.rogerio.libraryapi.service;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@Service
+public interface ExportService {
+
+    enum Format { NDJSON, CSV }
+
+    void exportBooks(OutputStream output, Format format) throws IOException;
+
+    void exportLoans(OutputStream output, Format format) throws IOException;
+}
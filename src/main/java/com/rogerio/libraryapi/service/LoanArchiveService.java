@@ -0,0 +1,21 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+@Service
+public interface LoanArchiveService {
+
+    long archive();
+
+    long archive(LocalDate before);
+
+    Page<LoanDTO> getLoanHistoryByBook(Long bookId, Pageable pageable);
+
+    Slice<LoanDTO> getLoanHistoryByBookAfter(Long bookId, Long afterId, int size);
+}
@@ -1,12 +1,19 @@
 package com.rogerio.libraryapi.service;
 
+import com.rogerio.libraryapi.dto.LoanCheckoutResultDTO;
+import com.rogerio.libraryapi.dto.LoanDTO;
 import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.dto.LoanReturnResultDTO;
+import com.rogerio.libraryapi.dto.OverdueLoanDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,13 +21,35 @@ import java.util.Optional;
 public interface LoanService {
     Loan save(Loan loan);
 
+    LoanCheckoutResultDTO checkout(String customer, String customerEmail, List<String> isbns, boolean partial);
+
     Optional<Loan> getById(Long id);
 
     Loan update(Loan loan);
 
+    LoanReturnResultDTO returnLoans(List<Long> loanIds, List<String> isbns);
+
     Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable);
 
+    Slice<Loan> findAfter(LoanFilterDTO loanFilterDTO, Long afterId, int size);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    Slice<Loan> getLoansByBookAfter(Book book, Long afterId, int size);
+
+    Page<LoanDTO> findDTO(LoanFilterDTO loanFilterDTO, Pageable pageable);
+
+    Slice<LoanDTO> findDTOAfter(LoanFilterDTO loanFilterDTO, Long afterId, int size);
+
+    Page<LoanDTO> getLoanDTOsByBook(Long bookId, Pageable pageable);
+
+    Slice<LoanDTO> getLoanDTOsByBookAfter(Long bookId, Long afterId, int size);
+
+    VersionDTO getVersionByBook(Long bookId);
+
     List<Loan> getAllLateLoans();
+
+    List<OverdueLoanDTO> getOverdueLoansByIds(List<Long> loanIds);
+
+    List<OverdueLoanDTO> getOverdueLoansByCustomerAfter(LocalDate referenceDate, Long afterCustomerId, Long afterId, int size);
 }
@@ -1,39 +1,425 @@
 package com.rogerio.libraryapi.service;
 
-import com.rogerio.libraryapi.entity.Loan;
-import lombok.RequiredArgsConstructor;
+import com.rogerio.libraryapi.cache.LoanDueQueue;
+import com.rogerio.libraryapi.dto.LateLoanDigestDTO;
+import com.rogerio.libraryapi.dto.OverdueLoanDTO;
+import com.rogerio.libraryapi.entity.JobCheckpoint;
+import com.rogerio.libraryapi.repository.JobCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @EnableScheduling
-@RequiredArgsConstructor
+@Slf4j
 public class ScheduleService {
 
     // Agendamento de tarefa ( Segundos, Minutos, Horas, Dia, Mes, Ano), utilizar o site CronMaker.com, copiar o cronformat
     public static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
+    public static final String LATE_LOANS_JOB = "late-loans-mail";
+
+    // Empréstimos listados em um resumo; os demais entram só na contagem
+    static final int DIGEST_MAX_LOANS = 50;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Arquivamento dos empréstimos devolvidos antigos, fora do horário do job de atrasados
+    public static final String CRON_ARCHIVE_LOANS = "0 0 3 1/1 * ?";
+
     private final LoanService loanService;
     private final EmailService emailService;
+    private final JobCheckpointRepository checkpointRepository;
+    private final LoanArchiveService loanArchiveService;
 
-    @Value("{application.mail.lateloans.message}")
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${application.mail.lateloans.message}")
     private String message;
 
+    @Value("${application.loans.late.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${application.loans.late.workers:4}")
+    private int workers = 4;
+
+    // timer: LoanDueQueue avisa cada vencimento; scan: varredura diária (CRON_LATE_LOANS)
+    @Value("${application.loans.late.mode:timer}")
+    private String mode = "timer";
 
+    @Value("${application.loans.late.digest-batch-size:100}")
+    private int digestBatchSize = 100;
+
+    public ScheduleService(LoanService loanService,
+                           EmailService emailService,
+                           JobCheckpointRepository checkpointRepository,
+                           LoanArchiveService loanArchiveService) {
+        this.loanService = loanService;
+        this.emailService = emailService;
+        this.checkpointRepository = checkpointRepository;
+        this.loanArchiveService = loanArchiveService;
+    }
+
+    // Só no modo scan; no modo timer os atrasos chegam por LoanDueQueue quando vencem
     @Scheduled(cron = CRON_LATE_LOANS)
     public void SendMailToLateLoans(){
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> mailsList = allLateLoans
-                .stream()
-                .map(loan -> loan.getCustomerEmail())
-                .collect(Collectors.toList());
+        if (isScanMode()) {
+            run(LocalDate.now());
+        }
+    }
+
+    // Empréstimos que acabaram de vencer, no máximo um lote da fila: um resumo por cliente.
+    // Espera as entregas. Um resumo que foi para a dead letter já está guardado para reenvio e conta
+    // como tratado; só falhas antes do envio (ex.: leitura dos empréstimos) voltam para LoanDueQueue
+    @EventListener
+    public void onLoansOverdue(LoanDueQueue.LoansOverdueEvent event) {
+        long start = System.currentTimeMillis();
+        List<OverdueLoanDTO> loans = loanService.getOverdueLoansByIds(event.getLoanIds());
+        DigestBuilder digests = new DigestBuilder();
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        for (OverdueLoanDTO loan : loans) {
+            LateLoanDigestDTO done = digests.add(loan);
+            if (done != null) {
+                deliveries.add(send(done));
+            }
+        }
+        LateLoanDigestDTO done = digests.finish();
+        if (done != null) {
+            deliveries.add(send(done));
+        }
+        AtomicInteger deadLettered = new AtomicInteger();
+        CompletableFuture.allOf(deliveries.stream()
+                .map(delivery -> delivery.exceptionally(error -> {
+                    deadLettered.incrementAndGet();
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        log.info("Empréstimos vencidos: {} na fila, {} em aberto com cliente, {} clientes avisados, "
+                        + "{} na dead letter em {} ms", event.getLoanIds().size(), loans.size(),
+                deliveries.size() - deadLettered.get(), deadLettered.get(), System.currentTimeMillis() - start);
+    }
+
+    private boolean isScanMode() {
+        return "scan".equalsIgnoreCase(mode);
+    }
+
+    @Scheduled(cron = CRON_ARCHIVE_LOANS)
+    public void archiveLoans(){
+        loanArchiveService.archive();
+    }
+
+    // Retoma uma execução que não terminou (queda da aplicação no meio do job)
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeLateLoansJob() {
+        if (!isScanMode()) {
+            return;
+        }
+        checkpointRepository.findById(LATE_LOANS_JOB)
+                .filter(checkpoint -> !Boolean.TRUE.equals(checkpoint.getCompleted()))
+                .ifPresent(checkpoint -> {
+                    log.info("Retomando job {} de {} a partir do cliente {}",
+                            LATE_LOANS_JOB, checkpoint.getRunDate(), checkpoint.getLastId());
+                    run(checkpoint.getRunDate());
+                });
+    }
+
+    // Envia a cada cliente um resumo dos seus empréstimos atrasados, lotes de resumos em paralelo
+    public void run(LocalDate runDate) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Job {} já está em execução", LATE_LOANS_JOB);
+            return;
+        }
+        try {
+            JobCheckpoint checkpoint = startCheckpoint(runDate);
+            if (Boolean.TRUE.equals(checkpoint.getCompleted())) {
+                log.info("Job {} de {} já concluído", LATE_LOANS_JOB, runDate);
+                return;
+            }
+            process(checkpoint);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private JobCheckpoint startCheckpoint(LocalDate runDate) {
+        JobCheckpoint checkpoint = checkpointRepository.findById(LATE_LOANS_JOB).orElse(null);
+        if (checkpoint != null && runDate.equals(checkpoint.getRunDate())) {
+            return checkpoint;
+        }
+        return JobCheckpoint.builder()
+                .name(LATE_LOANS_JOB)
+                .runDate(runDate)
+                .lastId(0L)
+                .completed(false)
+                .build();
+    }
+
+    // Lê os atrasados em ordem de (cliente, id) e agrupa em fluxo: o resumo de um cliente fica pronto quando
+    // o próximo cliente aparece. Os resumos seguem em lotes de digestBatchSize para os workers; em memória ficam
+    // só o lote lido, o resumo em montagem e os lotes em andamento.
+    // O checkpoint guarda o último cliente com o resumo entregue
+    private void process(JobCheckpoint checkpoint) {
+        long start = System.currentTimeMillis();
+        Dispatcher dispatcher = new Dispatcher(new Progress(checkpoint));
+
+        long loans = 0;
+        long afterCustomerId = checkpoint.getLastId();
+        long afterId = Long.MAX_VALUE;
+        DigestBuilder digests = new DigestBuilder();
+        List<LateLoanDigestDTO> batch = new ArrayList<>();
+        try {
+            while (true) {
+                List<OverdueLoanDTO> chunk = loanService.getOverdueLoansByCustomerAfter(
+                        checkpoint.getRunDate(), afterCustomerId, afterId, chunkSize);
+                for (OverdueLoanDTO loan : chunk) {
+                    LateLoanDigestDTO done = digests.add(loan);
+                    if (done != null) {
+                        batch.add(done);
+                    }
+                    if (batch.size() >= digestBatchSize) {
+                        dispatcher.submit(batch);
+                        batch = new ArrayList<>();
+                    }
+                }
+                loans += chunk.size();
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                OverdueLoanDTO last = chunk.get(chunk.size() - 1);
+                afterCustomerId = last.getCustomerId();
+                afterId = last.getId();
+            }
+            LateLoanDigestDTO done = digests.finish();
+            if (done != null) {
+                batch.add(done);
+            }
+            if (!batch.isEmpty()) {
+                dispatcher.submit(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            dispatcher.shutdown();
+        }
+
+        dispatcher.progress.finish(dispatcher.failures.get() == 0 && !Thread.currentThread().isInterrupted());
+        log.info("Job {} de {}: {} lotes, {} clientes, {} empréstimos, {} falhas em {} ms",
+                LATE_LOANS_JOB, checkpoint.getRunDate(), dispatcher.batches, dispatcher.customers.get(), loans,
+                dispatcher.failures.get(), System.currentTimeMillis() - start);
+    }
+
+    // Termina quando todos os resumos do lote foram entregues; falha de entrega falha o lote
+    private CompletableFuture<Void> sendDigests(int sequence, List<LateLoanDigestDTO> digests) {
+        long start = System.currentTimeMillis();
+        return CompletableFuture.allOf(digests.stream()
+                .map(this::send)
+                .toArray(CompletableFuture[]::new))
+                .thenRun(() -> log.info("Lote {} do job {}: {} clientes em {} ms",
+                        sequence, LATE_LOANS_JOB, digests.size(), System.currentTimeMillis() - start));
+    }
+
+    private CompletableFuture<Void> send(LateLoanDigestDTO digest) {
+        return emailService.sendMail(render(digest), digest.getEmail());
+    }
+
+    // Mensagem configurada seguida dos livros atrasados do cliente
+    String render(LateLoanDigestDTO digest) {
+        StringBuilder text = new StringBuilder(message).append("\n\n");
+        if (digest.getCustomer() != null) {
+            text.append(digest.getCustomer()).append(", ");
+        }
+        text.append("empréstimos atrasados:\n");
+        for (OverdueLoanDTO loan : digest.getLoans()) {
+            text.append("- ").append(loan.getTitle())
+                    .append(" (ISBN ").append(loan.getIsbn()).append("), emprestado em ")
+                    .append(DATE_FORMAT.format(loan.getLoanDate())).append("\n");
+        }
+        int others = digest.getTotal() - digest.getLoans().size();
+        if (others > 0) {
+            text.append("- e mais ").append(others).append(" empréstimos\n");
+        }
+        return text.toString();
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Aguardando lotes do job {}", LATE_LOANS_JOB);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Agrupa empréstimos lidos em ordem de cliente; o resumo de um cliente sai quando o próximo aparece
+    private static class DigestBuilder {
+        private LateLoanDigestDTO current;
+
+        private LateLoanDigestDTO add(OverdueLoanDTO loan) {
+            LateLoanDigestDTO done = null;
+            if (current == null || !current.getCustomerId().equals(loan.getCustomerId())) {
+                done = current;
+                current = LateLoanDigestDTO.builder()
+                        .customerId(loan.getCustomerId())
+                        .customer(loan.getCustomer())
+                        .email(loan.getEmail())
+                        .build();
+            }
+            if (current.getLoans().size() < DIGEST_MAX_LOANS) {
+                current.getLoans().add(loan);
+            }
+            current.setTotal(current.getTotal() + 1);
+            return done;
+        }
+
+        private LateLoanDigestDTO finish() {
+            LateLoanDigestDTO done = current;
+            current = null;
+            return done;
+        }
+    }
 
-        emailService.sendMails(message, mailsList);
+    // Entrega os lotes de resumos aos workers; a leitura espera quando há lotes demais em andamento.
+    // Um lote fica em andamento até a confirmação da entrega, e só ela avança o checkpoint
+    private class Dispatcher {
+        private final Progress progress;
+        private final int maxInFlight = workers * 2;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final ExecutorService executor = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+        private final AtomicLong customers = new AtomicLong();
+        private final AtomicInteger failures = new AtomicInteger();
+        private int batches;
+
+        private Dispatcher(Progress progress) {
+            this.progress = progress;
+        }
+
+        private void submit(List<LateLoanDigestDTO> digests) throws InterruptedException {
+            int sequence = batches++;
+            progress.submitted(sequence, digests.get(digests.size() - 1).getCustomerId());
+            inFlight.acquire();
+            executor.execute(() -> {
+                CompletableFuture<Void> delivery;
+                try {
+                    delivery = sendDigests(sequence, digests);
+                } catch (RuntimeException e) {
+                    delivery = CompletableFuture.failedFuture(e);
+                }
+                delivery.whenComplete((ignored, error) -> {
+                    try {
+                        if (error == null) {
+                            customers.addAndGet(digests.size());
+                            progress.done(sequence);
+                        } else {
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            failures.incrementAndGet();
+                            progress.failed(sequence);
+                            log.error("Falha no lote {} do job {}: {}", sequence, LATE_LOANS_JOB, cause.getMessage());
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+        }
+
+        // Espera os workers e depois as entregas ainda pendentes: cada lote devolve a permissão ao terminar
+        private void shutdown() {
+            executor.shutdown();
+            awaitTermination(executor);
+            try {
+                while (!inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+                    log.info("Aguardando entregas do job {}", LATE_LOANS_JOB);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
+    // Avança o checkpoint só até o último lote contínuo concluído, os lotes terminam fora de ordem.
+    // Depois de uma falha o checkpoint para antes do lote, que é reenviado na retomada
+    private class Progress {
+        private final JobCheckpoint checkpoint;
+        private final TreeMap<Integer, Long> pending = new TreeMap<>();
+        private final Set<Integer> done = new HashSet<>();
+        private Integer firstFailure;
+
+        private Progress(JobCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+
+        private synchronized void submitted(int sequence, long lastId) {
+            pending.put(sequence, lastId);
+        }
+
+        private synchronized void done(int sequence) {
+            done.add(sequence);
+            Long lastId = null;
+            while (!pending.isEmpty()) {
+                Integer first = pending.firstKey();
+                if (!done.contains(first) || (firstFailure != null && first >= firstFailure)) {
+                    break;
+                }
+                lastId = pending.remove(first);
+                done.remove(first);
+            }
+            if (lastId != null) {
+                checkpoint.setLastId(lastId);
+                save();
+            }
+        }
+
+        private synchronized void failed(int sequence) {
+            if (firstFailure == null || sequence < firstFailure) {
+                firstFailure = sequence;
+            }
+        }
+
+        private synchronized void finish(boolean completed) {
+            checkpoint.setCompleted(completed);
+            save();
+        }
+
+        private void save() {
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "late-loans-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
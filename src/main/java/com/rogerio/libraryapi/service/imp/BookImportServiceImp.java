@@ -0,0 +1,278 @@
+package com.rogerio.libraryapi.service.imp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rogerio.libraryapi.cache.BookIsbnCache;
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.BookImportRejectDTO;
+import com.rogerio.libraryapi.dto.BookImportResultDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.search.BookSearchIndex;
+import com.rogerio.libraryapi.service.BookImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Importação de livros em streaming: lê linha a linha e grava em lotes.
+// A memória fica limitada ao lote: duplicados dentro do lote são barrados aqui, os de lotes anteriores
+// já estão gravados e caem na consulta de existência, e o índice único idx_book_isbn cobre o resto
+@Service
+@Slf4j
+public class BookImportServiceImp implements BookImportService {
+
+    static final String DUPLICATED_ISBN = "ISBN já cadastrado.";
+    static final String DUPLICATED_IN_UPLOAD = "ISBN duplicado no arquivo.";
+    static final String INVALID_LINE = "Linha inválida.";
+    static final String MISSING_FIELDS = "Título, autor e ISBN são obrigatórios.";
+    static final String SAVE_FAILED = "Não foi possível gravar o livro.";
+
+    private static final List<String> DEFAULT_CSV_COLUMNS = Arrays.asList("title", "author", "isbn");
+
+    private final BookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookIsbnCache bookIsbnCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${application.books.import.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${application.books.import.max-rejects:1000}")
+    private int maxRejects = 1000;
+
+    public BookImportServiceImp(BookRepository bookRepository,
+                                BookSearchIndex bookSearchIndex,
+                                BookIsbnCache bookIsbnCache,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookIsbnCache = bookIsbnCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public BookImportResultDTO importBooks(InputStream input, Format format) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportState state = new ImportState();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> csvColumns = DEFAULT_CSV_COLUMNS;
+        List<Row> batch = new ArrayList<>(batchSize);
+        Set<String> batchIsbns = new HashSet<>();
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && lineNumber == 1 && isCsvHeader(line)) {
+                csvColumns = parseCsvLine(line).stream()
+                        .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.toList());
+                continue;
+            }
+
+            BookDTO dto = format == Format.CSV ? parseCsv(line, csvColumns) : parseJson(line);
+            if (dto == null) {
+                state.reject(lineNumber, null, INVALID_LINE);
+                continue;
+            }
+            if (isBlank(dto.getTitle()) || isBlank(dto.getAuthor()) || isBlank(dto.getIsbn())) {
+                state.reject(lineNumber, dto.getIsbn(), MISSING_FIELDS);
+                continue;
+            }
+            dto.setIsbn(dto.getIsbn().trim());
+
+            // Deduplicação dentro do lote atual
+            if (!batchIsbns.add(dto.getIsbn())) {
+                state.reject(lineNumber, dto.getIsbn(), DUPLICATED_IN_UPLOAD);
+                continue;
+            }
+
+            batch.add(new Row(lineNumber, dto));
+            if (batch.size() >= batchSize) {
+                flush(batch, state);
+                batch.clear();
+                batchIsbns.clear();
+            }
+        }
+        flush(batch, state);
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Importação de livros concluída: {} importados, {} rejeitados em {} ms",
+                state.imported, state.rejected, elapsed);
+        return BookImportResultDTO.builder()
+                .imported(state.imported)
+                .rejected(state.rejected)
+                .rejects(state.rejects)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    private void flush(List<Row> batch, ImportState state) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Uma única consulta IN para os ISBNs do lote
+        Set<String> existing = bookRepository.findExistingIsbns(batch.stream()
+                .map(row -> row.dto.getIsbn())
+                .collect(Collectors.toList()));
+
+        List<Row> rows = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (existing.contains(row.dto.getIsbn())) {
+                state.reject(row.line, row.dto.getIsbn(), DUPLICATED_ISBN);
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<Book> books = rows.stream().map(row -> toBook(row.dto)).collect(Collectors.toList());
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookRepository.saveAll(books));
+            books.forEach(this::indexImported);
+            state.imported += books.size();
+        } catch (RuntimeException e) {
+            // Lote recusado pelo banco: regrava linha a linha para identificar as rejeitadas
+            log.warn("Falha ao gravar lote de {} livros, gravando individualmente: {}", rows.size(), e.getMessage());
+            for (Row row : rows) {
+                saveSingle(row, state);
+            }
+        }
+    }
+
+    private void saveSingle(Row row, ImportState state) {
+        Book book = toBook(row.dto);
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookRepository.save(book));
+            indexImported(book);
+            state.imported++;
+        } catch (RuntimeException e) {
+            state.reject(row.line, row.dto.getIsbn(), SAVE_FAILED);
+        }
+    }
+
+    private void indexImported(Book book) {
+        if (book.getId() != null) {
+            bookIsbnCache.put(book.getIsbn(), book.getId());
+        } else {
+            bookIsbnCache.invalidate(book.getIsbn());
+        }
+        bookSearchIndex.index(book);
+    }
+
+    private Book toBook(BookDTO dto) {
+        return Book.builder()
+                .title(dto.getTitle().trim())
+                .author(dto.getAuthor().trim())
+                .isbn(dto.getIsbn())
+                .build();
+    }
+
+    private BookDTO parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, BookDTO.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private BookDTO parseCsv(String line, List<String> columns) {
+        List<String> values = parseCsvLine(line);
+        if (values == null || values.size() < columns.size()) {
+            return null;
+        }
+        BookDTO dto = new BookDTO();
+        for (int i = 0; i < columns.size(); i++) {
+            String value = values.get(i);
+            switch (columns.get(i)) {
+                case "title": dto.setTitle(value); break;
+                case "author": dto.setAuthor(value); break;
+                case "isbn": dto.setIsbn(value); break;
+                default: break;
+            }
+        }
+        return dto;
+    }
+
+    private boolean isCsvHeader(String line) {
+        List<String> columns = parseCsvLine(line);
+        return columns != null && columns.stream().anyMatch(column -> "isbn".equalsIgnoreCase(column.trim()));
+    }
+
+    // Separa uma linha CSV respeitando aspas; retorna null quando as aspas não fecham
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static class Row {
+        private final long line;
+        private final BookDTO dto;
+
+        private Row(long line, BookDTO dto) {
+            this.line = line;
+            this.dto = dto;
+        }
+    }
+
+    private class ImportState {
+        private final List<BookImportRejectDTO> rejects = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        private void reject(long line, String isbn, String reason) {
+            rejected++;
+            if (rejects.size() < maxRejects) {
+                rejects.add(new BookImportRejectDTO(line, isbn, reason));
+            }
+        }
+    }
+}
@@ -1,32 +1,73 @@
 package com.rogerio.libraryapi.service.imp;
 
+import com.rogerio.libraryapi.cache.BookIsbnCache;
+import com.rogerio.libraryapi.cache.BookJsonCache;
+import com.rogerio.libraryapi.config.TransactionCallbacks;
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.exceptions.BusinessException;
 import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.search.BookSearchIndex;
 import com.rogerio.libraryapi.service.BookService;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookServiceImp implements BookService {
 
     private BookRepository bookRepository;
 
-    public BookServiceImp(BookRepository bookRepository) {
+    private BookSearchIndex bookSearchIndex;
+
+    private BookIsbnCache bookIsbnCache;
+
+    private BookJsonCache bookJsonCache;
+
+    public BookServiceImp(BookRepository bookRepository, BookSearchIndex bookSearchIndex,
+                          BookIsbnCache bookIsbnCache, BookJsonCache bookJsonCache) {
         this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookIsbnCache = bookIsbnCache;
+        this.bookJsonCache = bookJsonCache;
     }
 
     @Override
     public Book save(Book book) {
-        if(bookRepository.existsByIsbn(book.getIsbn())){
+        if(existsByIsbn(book.getIsbn())){
             throw new BusinessException("ISBN já cadastrado.");
         }
-        return bookRepository.save(book);
+        Book savedBook;
+        try {
+            savedBook = bookRepository.save(book);
+        } catch (RuntimeException e) {
+            bookIsbnCache.invalidate(book.getIsbn());
+            throw e;
+        }
+        // Substitui um eventual cache negativo pelo livro recém cadastrado, só depois que ele for efetivado
+        TransactionCallbacks.afterCommit(() -> {
+            bookIsbnCache.put(savedBook.getIsbn(), savedBook.getId());
+            bookSearchIndex.index(savedBook);
+        });
+        return savedBook;
     }
 
     @Override
@@ -40,6 +81,9 @@ public class BookServiceImp implements BookService {
             throw new IllegalArgumentException("Book id can't be null");
         }
         this.bookRepository.delete(book);
+        bookIsbnCache.invalidate(book);
+        bookJsonCache.invalidate(book.getId());
+        TransactionCallbacks.afterCommit(() -> bookSearchIndex.remove(book.getId()));
     }
 
     @Override
@@ -47,11 +91,116 @@ public class BookServiceImp implements BookService {
         if(book == null || book.getId() == null){
             throw new IllegalArgumentException("Book id can't be null");
         }
-        return this.bookRepository.save(book);
+        Book updatedBook;
+        try {
+            updatedBook = this.bookRepository.save(book);
+        } finally {
+            bookIsbnCache.invalidate(book);
+            bookJsonCache.invalidate(book.getId());
+        }
+        Book indexedBook = updatedBook;
+        TransactionCallbacks.afterCommit(() -> bookSearchIndex.index(indexedBook));
+        return updatedBook;
     }
 
     @Override
     public Page<Book> find(Book filter, Pageable pageRequest) {
+        // Ordenação explícita é atendida pelo banco, o índice ordena por relevância
+        if (bookSearchIndex.isReady() && pageRequest.getSort().isUnsorted()) {
+            Optional<List<Long>> rankedIds = bookSearchIndex.search(filter);
+            if (rankedIds.isPresent()) {
+                return findByRankedIds(rankedIds.get(), pageRequest, bookRepository::findAllById, Book::getId);
+            }
+        }
+        return findByExample(filter, pageRequest);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookDTO> findDTO(Book filter, Pageable pageRequest) {
+        // O índice de busca não conhece a disponibilidade, o filtro vai para o idx_book_available
+        if (filter.getAvailable() != null) {
+            return bookRepository.findDTOByAvailableAndFilter(
+                    filter.getAvailable(), filter.getId(), filter.getTitle(), filter.getAuthor(), filter.getIsbn(),
+                    pageRequest);
+        }
+        if (bookSearchIndex.isReady() && pageRequest.getSort().isUnsorted()) {
+            Optional<List<Long>> rankedIds = bookSearchIndex.search(filter);
+            if (rankedIds.isPresent()) {
+                return findByRankedIds(rankedIds.get(), pageRequest, this::findDTOByIds, BookDTO::getId);
+            }
+        }
+        return bookRepository.findDTOByFilter(filter.getId(), filter.getTitle(), filter.getAuthor(), filter.getIsbn(), pageRequest);
+    }
+
+    @Override
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        if (bookSearchIndex.isReady()) {
+            Optional<List<Long>> matchedIds = bookSearchIndex.search(filter);
+            if (matchedIds.isPresent()) {
+                return findAfterByIds(matchedIds.get(), afterId, size, bookRepository::findAllById, Book::getId);
+            }
+        }
+        return bookRepository.findAfter(
+                afterId,
+                filter.getId(),
+                filter.getTitle(),
+                filter.getAuthor(),
+                filter.getIsbn(),
+                PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<BookDTO> findDTOAfter(Book filter, Long afterId, int size) {
+        if (filter.getAvailable() != null) {
+            return bookRepository.findDTOByAvailableAfter(
+                    filter.getAvailable(),
+                    afterId,
+                    filter.getId(),
+                    filter.getTitle(),
+                    filter.getAuthor(),
+                    filter.getIsbn(),
+                    PageRequest.of(0, size, Sort.by("id")));
+        }
+        if (bookSearchIndex.isReady()) {
+            Optional<List<Long>> matchedIds = bookSearchIndex.search(filter);
+            if (matchedIds.isPresent()) {
+                return findAfterByIds(matchedIds.get(), afterId, size, this::findDTOByIds, BookDTO::getId);
+            }
+        }
+        return bookRepository.findDTOAfter(
+                afterId,
+                filter.getId(),
+                filter.getTitle(),
+                filter.getAuthor(),
+                filter.getIsbn(),
+                PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BookDTO> getDTOById(Long id) {
+        return bookRepository.findDTOById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existsById(Long id) {
+        return bookRepository.existsById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VersionDTO getVersion(Long id) {
+        return bookRepository.findVersionById(id);
+    }
+
+    private List<BookDTO> findDTOByIds(List<Long> ids) {
+        return ids.isEmpty() ? Collections.emptyList() : bookRepository.findDTOByIdIn(ids);
+    }
+
+    private Page<Book> findByExample(Book filter, Pageable pageRequest) {
         Example<Book> example = Example.of(filter, ExampleMatcher
                 .matching()
                 .withIgnoreCase()
@@ -62,7 +211,54 @@ public class BookServiceImp implements BookService {
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return bookRepository.findByIsbn(isbn);
+        return bookIsbnCache.get(isbn, bookRepository::findByIsbn, bookRepository::findById);
+    }
+
+    // Ids do índice ordenados pela chave do cursor, carregando apenas a página pedida
+    private <T> Slice<T> findAfterByIds(List<Long> matchedIds, Long afterId, int size,
+                                        Function<List<Long>, List<T>> loader, Function<T, Long> idOf) {
+        List<Long> pageIds = matchedIds.stream()
+                .filter(id -> id > afterId)
+                .sorted()
+                .limit(size + 1l)
+                .collect(Collectors.toList());
+        boolean hasNext = pageIds.size() > size;
+        if (hasNext) {
+            pageIds = pageIds.subList(0, size);
+        }
+
+        List<T> content = loader.apply(pageIds)
+                .stream()
+                .sorted(Comparator.comparing(idOf))
+                .collect(Collectors.toList());
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    private boolean existsByIsbn(String isbn) {
+        Boolean cached = bookIsbnCache.exists(isbn);
+        if (cached != null) {
+            return cached;
+        }
+        return bookRepository.existsByIsbn(isbn);
+    }
+
+    private <T> Page<T> findByRankedIds(List<Long> rankedIds, Pageable pageRequest,
+                                        Function<List<Long>, List<T>> loader, Function<T, Long> idOf) {
+        List<Long> pageIds = rankedIds;
+        if (pageRequest.isPaged()) {
+            int from = (int) Math.min(pageRequest.getOffset(), rankedIds.size());
+            int to = Math.min(from + pageRequest.getPageSize(), rankedIds.size());
+            pageIds = rankedIds.subList(from, to);
+        }
+
+        Map<Long, T> books = loader.apply(pageIds)
+                .stream()
+                .collect(Collectors.toMap(idOf, Function.identity()));
+        List<T> content = pageIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageRequest, rankedIds.size());
     }
 
 
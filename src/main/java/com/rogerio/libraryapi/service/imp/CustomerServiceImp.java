@@ -0,0 +1,79 @@
+package com.rogerio.libraryapi.service.imp;
+
+import com.rogerio.libraryapi.dto.CustomerLoanDTO;
+import com.rogerio.libraryapi.entity.Customer;
+import com.rogerio.libraryapi.repository.CustomerRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.service.CustomerService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+public class CustomerServiceImp implements CustomerService {
+
+    private final CustomerRepository customerRepository;
+    private final LoanRepository loanRepository;
+
+    public CustomerServiceImp(CustomerRepository customerRepository, LoanRepository loanRepository) {
+        this.customerRepository = customerRepository;
+        this.loanRepository = loanRepository;
+    }
+
+    @Override
+    public Optional<Customer> getById(Long id) {
+        return customerRepository.findById(id);
+    }
+
+    // Busca pelo índice único do e-mail e cria o cliente na primeira vez; sem e-mail não há cliente.
+    // Chamado antes da transação do empréstimo: o insert é a transação curta do próprio repositório e,
+    // se outro pedido criar o mesmo e-mail antes, a restrição única falha só nela e o cliente dele é lido de novo
+    @Override
+    public Long resolveId(String name, String email) {
+        String normalized = normalizeEmail(email);
+        if (normalized == null) {
+            return null;
+        }
+        Optional<Customer> customer = customerRepository.findByEmail(normalized);
+        if (customer.isPresent()) {
+            return customer.get().getId();
+        }
+        try {
+            return customerRepository.saveAndFlush(Customer.builder()
+                    .name(name)
+                    .email(normalized)
+                    .build()).getId();
+        } catch (DataIntegrityViolationException e) {
+            return customerRepository.findByEmail(normalized)
+                    .map(Customer::getId)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CustomerLoanDTO> getLoans(Long customerId, Pageable pageable) {
+        return loanRepository.findDTOByCustomerId(customerId, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<CustomerLoanDTO> getLoansAfter(Long customerId, Long afterId, int size) {
+        return loanRepository.findDTOByCustomerIdAfter(customerId, afterId, PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    static String normalizeEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
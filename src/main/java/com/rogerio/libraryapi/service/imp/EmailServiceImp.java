@@ -1,35 +1,296 @@
 package com.rogerio.libraryapi.service.imp;
 
+import com.rogerio.libraryapi.entity.MailDeadLetter;
+import com.rogerio.libraryapi.repository.MailDeadLetterRepository;
 import com.rogerio.libraryapi.service.EmailService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Envio assíncrono: sendMails divide os destinatários em mensagens e enfileira, sendMail enfileira uma só,
+// os remetentes consomem a fila com novas tentativas e guardam as falhas definitivas.
+// Enfileirar não é entregar: quem precisa saber do resultado espera o CompletableFuture devolvido.
+// Os destinatários vão em cópia oculta, nenhum cliente vê o e-mail dos outros
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class EmailServiceImp implements EmailService {
 
-    @Value("{application.mail.default.remetent}")
+    static final String SUBJECT = "Livro empréstimo atrasado";
+
+    @Value("${application.mail.default.remetent}")
     private String remetent;
 
+    @Value("${application.mail.queue-capacity:1000}")
+    private int queueCapacity = 1000;
+
+    @Value("${application.mail.senders:4}")
+    private int senders = 4;
+
+    @Value("${application.mail.recipients-per-message:50}")
+    private int recipientsPerMessage = 50;
+
+    @Value("${application.mail.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${application.mail.backoff-initial-ms:500}")
+    private long backoffInitialMillis = 500;
+
+    @Value("${application.mail.backoff-max-ms:30000}")
+    private long backoffMaxMillis = 30000;
+
+    @Value("${application.mail.enqueue-timeout-ms:30000}")
+    private long enqueueTimeoutMillis = 30000;
+
     private final JavaMailSender javaMailSender;
+    private final MailDeadLetterRepository deadLetterRepository;
+
+    private BlockingQueue<MailJob> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    // Mensagens enfileiradas ainda não enviadas nem descartadas
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong sentRecipients = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong deadLetters = new AtomicLong();
+
+    public EmailServiceImp(JavaMailSender javaMailSender,
+                           MailDeadLetterRepository deadLetterRepository,
+                           MeterRegistry meterRegistry) {
+        this.javaMailSender = javaMailSender;
+        this.deadLetterRepository = deadLetterRepository;
 
+        // Resultado do envio lido dos contadores existentes, sem custo extra no envio
+        FunctionCounter.builder("library.mail.messages", sentMessages, AtomicLong::get)
+                .tag("outcome", "sent").register(meterRegistry);
+        FunctionCounter.builder("library.mail.messages", retries, AtomicLong::get)
+                .tag("outcome", "retry").register(meterRegistry);
+        FunctionCounter.builder("library.mail.messages", deadLetters, AtomicLong::get)
+                .tag("outcome", "dead_letter").register(meterRegistry);
+        FunctionCounter.builder("library.mail.recipients", sentRecipients, AtomicLong::get)
+                .tag("outcome", "sent").register(meterRegistry);
+        Gauge.builder("library.mail.queue.size", this, EmailServiceImp::getQueueSize).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 1; i <= senders; i++) {
+            Thread worker = new Thread(this::consume, "mail-sender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    // Esvazia a fila antes de encerrar; o que sobrar após o prazo vai para a dead letter
+    @PreDestroy
+    public synchronized void stop() {
+        awaitIdle(Duration.ofMillis(enqueueTimeoutMillis));
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+        MailJob job;
+        while (queue != null && (job = queue.poll()) != null) {
+            deadLetter(job, "Envio interrompido no encerramento da aplicação");
+        }
+    }
+
+    // Completa quando todas as mensagens forem entregues; com erro se alguma for para a dead letter
     @Override
-    public void sendMails(String message, List<String> mailsList) {
+    public CompletableFuture<Void> sendMails(String message, List<String> mailsList) {
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        for (int from = 0; from < mailsList.size(); from += recipientsPerMessage) {
+            List<String> recipients = mailsList.subList(from, Math.min(from + recipientsPerMessage, mailsList.size()));
+            deliveries.add(enqueue(new MailJob(message, recipients.toArray(new String[0]))));
+        }
+        return CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0]));
+    }
 
-        String[] mails = mailsList.toArray(new String[mailsList.size()]);
+    // Mensagem individual (ex.: resumo de atrasados de um cliente), com as mesmas tentativas e dead letter
+    @Override
+    public CompletableFuture<Void> sendMail(String message, String recipient) {
+        return enqueue(new MailJob(message, new String[]{recipient}));
+    }
+
+    // Bloqueia quem enfileira enquanto a fila estiver cheia (backpressure)
+    private CompletableFuture<Void> enqueue(MailJob job) {
+        pending.incrementAndGet();
+        try {
+            if (!running || !queue.offer(job, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                deadLetter(job, "Fila de e-mails cheia");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deadLetter(job, "Envio interrompido ao enfileirar");
+        }
+        return job.delivered;
+    }
 
+    private void consume() {
+        while (running) {
+            MailJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            send(job);
+        }
+    }
+
+    private void send(MailJob job) {
+        while (true) {
+            job.attempts++;
+            try {
+                javaMailSender.send(toMailMessage(job));
+                sentMessages.incrementAndGet();
+                sentRecipients.addAndGet(job.recipients.length);
+                pending.decrementAndGet();
+                job.delivered.complete(null);
+                return;
+            } catch (MailParseException e) {
+                // Mensagem inválida, repetir não resolve
+                deadLetter(job, e.getMessage());
+                return;
+            } catch (MailException e) {
+                if (job.attempts >= maxAttempts) {
+                    deadLetter(job, e.getMessage());
+                    return;
+                }
+                retries.incrementAndGet();
+                log.warn("Falha ao enviar e-mail para {} destinatários (tentativa {}): {}",
+                        job.recipients.length, job.attempts, e.getMessage());
+                try {
+                    Thread.sleep(backoff(job.attempts));
+                } catch (InterruptedException interrupted) {
+                    deadLetter(job, e.getMessage());
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // Erro inesperado do remetente: a mensagem vai para a dead letter e o worker segue na fila
+                deadLetter(job, e.toString());
+                return;
+            }
+        }
+    }
+
+    // Espera exponencial com jitter, limitada a backoffMaxMillis
+    long backoff(int attempt) {
+        long delay = Math.min(backoffMaxMillis, backoffInitialMillis << Math.min(attempt - 1, 30));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private SimpleMailMessage toMailMessage(MailJob job) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setFrom(remetent);
-        mailMessage.setSubject("Livro empréstimo atrasado");
-        mailMessage.setText(message);
-        mailMessage.setTo(mails);
+        mailMessage.setSubject(SUBJECT);
+        mailMessage.setText(job.message);
+        mailMessage.setBcc(job.recipients);
+        return mailMessage;
+    }
+
+    private void deadLetter(MailJob job, String error) {
+        deadLetters.incrementAndGet();
+        pending.decrementAndGet();
+        log.error("E-mail para {} destinatários descartado após {} tentativas: {}",
+                job.recipients.length, job.attempts, error);
+        try {
+            deadLetterRepository.save(MailDeadLetter.builder()
+                    .recipients(String.join(",", job.recipients))
+                    .message(job.message)
+                    .error(error == null || error.length() <= 1000 ? error : error.substring(0, 1000))
+                    .attempts(job.attempts)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (RuntimeException e) {
+            log.error("Não foi possível gravar a dead letter: {}", e.getMessage());
+        }
+        job.delivered.completeExceptionally(new MailSendException(error == null ? "E-mail não entregue" : error));
+    }
+
+    // Aguarda até que todas as mensagens enfileiradas sejam enviadas ou descartadas
+    public boolean awaitIdle(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public long getSentRecipients() {
+        return sentRecipients.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getDeadLetters() {
+        return deadLetters.get();
+    }
+
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
 
-        javaMailSender.send(mailMessage);
+    private static class MailJob {
+        private final String message;
+        private final String[] recipients;
+        private final CompletableFuture<Void> delivered = new CompletableFuture<>();
+        private int attempts;
 
+        private MailJob(String message, String[] recipients) {
+            this.message = message;
+            this.recipients = recipients;
+        }
     }
 }
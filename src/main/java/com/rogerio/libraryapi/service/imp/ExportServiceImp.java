@@ -0,0 +1,216 @@
+package com.rogerio.libraryapi.service.imp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.rogerio.libraryapi.service.ExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+// Exportação lendo direto do cursor JDBC, sem passar por entidades gerenciadas
+@Service
+public class ExportServiceImp implements ExportService {
+
+    enum Type { LONG, STRING, DATE, BOOLEAN }
+
+    static class Column {
+        private final String sqlName;
+        private final String fieldName;
+        private final Type type;
+
+        Column(String sqlName, String fieldName, Type type) {
+            this.sqlName = sqlName;
+            this.fieldName = fieldName;
+            this.type = type;
+        }
+    }
+
+    static final List<Column> BOOK_COLUMNS = Arrays.asList(
+            new Column("id", "id", Type.LONG),
+            new Column("title", "title", Type.STRING),
+            new Column("author", "author", Type.STRING),
+            new Column("isbn", "isbn", Type.STRING));
+
+    static final List<Column> LOAN_COLUMNS = Arrays.asList(
+            new Column("id", "id", Type.LONG),
+            new Column("id_book", "bookId", Type.LONG),
+            new Column("customer", "customer", Type.STRING),
+            new Column("customer_email", "customerEmail", Type.STRING),
+            new Column("loan_date", "loanDate", Type.DATE),
+            new Column("returned", "returned", Type.BOOLEAN));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Value("${application.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    public ExportServiceImp(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Alguns drivers só usam cursor (fetch size) dentro de transação
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void exportBooks(OutputStream output, Format format) throws IOException {
+        export("tb_book", BOOK_COLUMNS, output, format);
+    }
+
+    @Override
+    public void exportLoans(OutputStream output, Format format) throws IOException {
+        export("tb_loan", LOAN_COLUMNS, output, format);
+    }
+
+    private void export(String table, List<Column> columns, OutputStream output, Format format) throws IOException {
+        String sql = "select " + String.join(", ", columns.stream().map(column -> column.sqlName).toArray(String[]::new))
+                + " from " + table + " order by id";
+
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(output, columns) : new NdjsonRowWriter(output, columns);
+        try {
+            writer.start();
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (RowCallbackHandler) writer::write));
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Lê a coluna já no tipo de saída: Long, Boolean, LocalDate ou String
+    static Object readValue(ResultSet resultSet, int index, Type type) throws SQLException {
+        switch (type) {
+            case LONG:
+                long number = resultSet.getLong(index);
+                return resultSet.wasNull() ? null : number;
+            case BOOLEAN:
+                boolean flag = resultSet.getBoolean(index);
+                return resultSet.wasNull() ? null : flag;
+            case DATE:
+                Date date = resultSet.getDate(index);
+                return date == null ? null : date.toLocalDate();
+            default:
+                return resultSet.getString(index);
+        }
+    }
+
+    private abstract static class RowWriter {
+        protected final List<Column> columns;
+
+        RowWriter(List<Column> columns) {
+            this.columns = columns;
+        }
+
+        abstract void start() throws IOException;
+
+        abstract void writeRow(ResultSet resultSet) throws IOException, SQLException;
+
+        abstract void finish() throws IOException;
+
+        void write(ResultSet resultSet) throws SQLException {
+            try {
+                writeRow(resultSet);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private class NdjsonRowWriter extends RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream output, List<Column> columns) throws IOException {
+            super(columns);
+            this.generator = jsonFactory.createGenerator(output);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void start() {
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet) throws IOException, SQLException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = readValue(resultSet, i + 1, columns.get(i).type);
+                generator.writeFieldName(columns.get(i).fieldName);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Long) {
+                    generator.writeNumber((Long) value);
+                } else if (value instanceof Boolean) {
+                    generator.writeBoolean((Boolean) value);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvRowWriter extends RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream output, List<Column> columns) {
+            super(columns);
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void start() throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) writer.write(',');
+                writer.write(columns.get(i).fieldName);
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet) throws IOException, SQLException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) writer.write(',');
+                Object value = readValue(resultSet, i + 1, columns.get(i).type);
+                if (value != null) {
+                    writer.write(escape(value.toString()));
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.rogerio.libraryapi.service.imp;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.repository.LoanArchiveRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.service.LoanArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Move empréstimos devolvidos antigos de tb_loan para tb_loan_archive em lotes curtos,
+// cada lote na sua transação para não segurar locks; o histórico completo intercala as duas tabelas
+@Service
+@Slf4j
+public class LoanArchiveServiceImp implements LoanArchiveService {
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.loans.archive.after-days:365}")
+    private int afterDays = 365;
+
+    @Value("${application.loans.archive.batch-size:500}")
+    private int batchSize = 500;
+
+    public LoanArchiveServiceImp(LoanRepository loanRepository,
+                                 LoanArchiveRepository loanArchiveRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public long archive() {
+        return archive(LocalDate.now().minusDays(afterDays));
+    }
+
+    @Override
+    public long archive(LocalDate before) {
+        long start = System.currentTimeMillis();
+        long archived = 0;
+        int batches = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = loanRepository.findArchivableIds(before, afterId, PageRequest.of(0, batchSize, Sort.by("id")));
+            if (ids.isEmpty()) {
+                break;
+            }
+            archived += transactionTemplate.execute(status -> moveBatch(ids));
+            batches++;
+            if (ids.size() < batchSize) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        log.info("Arquivamento de empréstimos devolvidos antes de {}: {} empréstimos em {} lotes, {} ms",
+                before, archived, batches, System.currentTimeMillis() - start);
+        return archived;
+    }
+
+    // Trava o lote, copia e apaga na mesma transação; um empréstimo reaberto não entra
+    private int moveBatch(List<Long> ids) {
+        List<Long> locked = loanArchiveRepository.lockReturned(ids);
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        loanArchiveRepository.copyToArchive(locked);
+        return loanArchiveRepository.deleteFromLoans(locked);
+    }
+
+    // Intercala pelo id o prefixo necessário de cada tabela; páginas profundas ficam caras, o cursor não
+    @Override
+    @Transactional(readOnly = true)
+    public Page<LoanDTO> getLoanHistoryByBook(Long bookId, Pageable pageable) {
+        int limit = (int) pageable.getOffset() + pageable.getPageSize();
+        Pageable prefix = PageRequest.of(0, limit, Sort.by("id"));
+        Page<LoanDTO> hot = loanRepository.findDTOByBookId(bookId, prefix);
+        Page<LoanDTO> archived = loanArchiveRepository.findDTOByBookId(bookId, prefix);
+
+        List<LoanDTO> merged = merge(hot.getContent(), archived.getContent());
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(limit, merged.size());
+        return new PageImpl<>(merged.subList(from, to), pageable,
+                hot.getTotalElements() + archived.getTotalElements());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<LoanDTO> getLoanHistoryByBookAfter(Long bookId, Long afterId, int size) {
+        Pageable next = PageRequest.of(0, size, Sort.by("id"));
+        Slice<LoanDTO> hot = loanRepository.findDTOByBookIdAfter(bookId, afterId, next);
+        Slice<LoanDTO> archived = loanArchiveRepository.findDTOByBookIdAfter(bookId, afterId, next);
+
+        List<LoanDTO> merged = merge(hot.getContent(), archived.getContent());
+        boolean hasNext = merged.size() > size || hot.hasNext() || archived.hasNext();
+        return new SliceImpl<>(merged.subList(0, Math.min(size, merged.size())), next, hasNext);
+    }
+
+    private List<LoanDTO> merge(List<LoanDTO> hot, List<LoanDTO> archived) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        if (hot.isEmpty()) {
+            return archived;
+        }
+        List<LoanDTO> merged = new ArrayList<>(hot.size() + archived.size());
+        int i = 0;
+        int j = 0;
+        while (i < hot.size() || j < archived.size()) {
+            if (j >= archived.size() || (i < hot.size() && hot.get(i).getId() < archived.get(j).getId())) {
+                merged.add(hot.get(i++));
+            } else {
+                merged.add(archived.get(j++));
+            }
+        }
+        return merged;
+    }
+}
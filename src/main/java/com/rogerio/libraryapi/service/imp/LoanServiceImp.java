@@ -1,34 +1,231 @@
 package com.rogerio.libraryapi.service.imp;
 
+import com.rogerio.libraryapi.cache.BookAvailabilityIndex;
+import com.rogerio.libraryapi.cache.LoanDueQueue;
+import com.rogerio.libraryapi.dto.LoanCheckoutItemDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutResultDTO;
+import com.rogerio.libraryapi.dto.LoanDTO;
 import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.dto.LoanReturnItemDTO;
+import com.rogerio.libraryapi.dto.LoanReturnResultDTO;
+import com.rogerio.libraryapi.dto.OverdueLoanDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.entity.Loan;
 import com.rogerio.libraryapi.exceptions.BusinessException;
+import com.rogerio.libraryapi.repository.BookRepository;
 import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.repository.LoanSearchQuery;
+import com.rogerio.libraryapi.repository.LoanSearchRepository;
+import com.rogerio.libraryapi.service.CustomerService;
 import com.rogerio.libraryapi.service.LoanService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 @Service
+@Slf4j
 public class LoanServiceImp implements LoanService {
 
     private LoanRepository loanRepository;
 
-    public LoanServiceImp(LoanRepository loanRepository) {
+    private BookRepository bookRepository;
+
+    private BookAvailabilityIndex availabilityIndex;
+
+    private LoanSearchRepository loanSearchRepository;
+
+    private CustomerService customerService;
+
+    private LoanDueQueue dueQueue;
+
+    private TransactionTemplate transactionTemplate;
+
+    static final int CHECKOUT_LOCK_STRIPES = 1024;
+
+    static final int LOAN_DAYS = 4;
+
+    // Prazo do empréstimo; o mesmo valor define o vencimento em LoanDueQueue
+    @Value("${application.loans.days:" + LOAN_DAYS + "}")
+    private int loanDays = LOAN_DAYS;
+
+    static final int MAX_RETURN_BATCH = 1000;
+
+    static final int MAX_CHECKOUT_BATCH = 100;
+
+    static final String CHECKOUT_REJECTED_METRIC = "library.loans.checkout.rejected";
+
+    private final StripedLocks checkoutLocks = new StripedLocks(CHECKOUT_LOCK_STRIPES);
+
+    // Recusas de empréstimo: livro emprestado segundo a verificação ou barrado pela restrição única do banco
+    private final Counter rejectedLoaned;
+    private final Counter rejectedConstraint;
+
+    public LoanServiceImp(LoanRepository loanRepository,
+                          BookRepository bookRepository,
+                          BookAvailabilityIndex availabilityIndex,
+                          LoanSearchRepository loanSearchRepository,
+                          CustomerService customerService,
+                          LoanDueQueue dueQueue,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
         this.loanRepository = loanRepository;
+        this.bookRepository = bookRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.loanSearchRepository = loanSearchRepository;
+        this.customerService = customerService;
+        this.dueQueue = dueQueue;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rejectedLoaned = meterRegistry.counter(CHECKOUT_REJECTED_METRIC, "reason", "loaned");
+        this.rejectedConstraint = meterRegistry.counter(CHECKOUT_REJECTED_METRIC, "reason", "constraint");
     }
 
+    // O cliente é resolvido antes da transação do empréstimo: a criação dele termina antes,
+    // sem segurar uma segunda conexão do pool enquanto a do empréstimo está aberta
     @Override
     public Loan save(Loan loan) {
-        if(loanRepository.existsByBookAndNotReturned(loan.getBook())){
+        if (loan.getCustomerId() == null) {
+            loan.setCustomerId(customerService.resolveId(loan.getCustomer(), loan.getCustomerEmail()));
+        }
+        return transactionTemplate.execute(status -> saveLoan(loan));
+    }
+
+    private Loan saveLoan(Loan loan) {
+        Book book = loan.getBook();
+        boolean open = !Boolean.TRUE.equals(loan.getReturned());
+        // Admissão serializada por livro; livros diferentes seguem em paralelo
+        Lock lock = checkoutLocks.get(book.getId());
+        lock.lock();
+        try {
+            if(open && !checkOut(book)){
+                rejectedLoaned.increment();
+                throw new BusinessException("Book already loaned");
+            }
+            loan.setOpenBookId(open ? book.getId() : null);
+            Loan savedLoan;
+            try {
+                savedLoan = loanRepository.saveAndFlush(loan);
+            } catch (DataIntegrityViolationException e) {
+                // Outro nó já abriu um empréstimo para o livro (restrição única em open_book_id)
+                availabilityIndex.set(book.getId(), true);
+                rejectedConstraint.increment();
+                throw new BusinessException("Book already loaned");
+            }
+            if (open) {
+                bookRepository.setCurrentLoan(book.getId(), savedLoan.getId());
+                availabilityIndex.markLoaned(book.getId());
+                dueQueue.markLoaned(savedLoan);
+            }
+            return savedLoan;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Empréstimo em lote: uma consulta resolve e trava os livros, um insert em lote cria os empréstimos
+    // e um update marca os livros. No modo ALL_OR_NOTHING nada é gravado se algum ISBN falhar.
+    // Como em save, o cliente é resolvido antes da transação
+    @Override
+    public LoanCheckoutResultDTO checkout(String customer, String customerEmail, List<String> isbns, boolean partial) {
+        if (isbns == null || isbns.isEmpty()) {
+            throw new BusinessException("No books to loan");
+        }
+        if (isbns.size() > MAX_CHECKOUT_BATCH) {
+            throw new BusinessException("Too many books to loan, the limit is " + MAX_CHECKOUT_BATCH);
+        }
+        Long customerId = customerService.resolveId(customer, customerEmail);
+        return transactionTemplate.execute(status -> checkoutLoans(customer, customerEmail, customerId, isbns, partial));
+    }
+
+    private LoanCheckoutResultDTO checkoutLoans(String customer, String customerEmail, Long customerId,
+                                                List<String> isbns, boolean partial) {
+        Map<String, Book> books = new HashMap<>();
+        for (Book book : bookRepository.lockByIsbnIn(new HashSet<>(isbns))) {
+            books.put(book.getIsbn(), book);
+        }
+
+        List<LoanCheckoutItemDTO> items = new ArrayList<>();
+        List<Loan> loans = new ArrayList<>();
+        Set<Long> bookIds = new HashSet<>();
+        boolean failed = false;
+        for (String isbn : isbns) {
+            Book book = books.get(isbn);
+            LoanCheckoutItemDTO item = new LoanCheckoutItemDTO(isbn, null, LoanCheckoutItemDTO.Status.LOANED);
+            if (book == null) {
+                item.setStatus(LoanCheckoutItemDTO.Status.NOT_FOUND);
+            } else if (Boolean.FALSE.equals(book.getAvailable()) || !bookIds.add(book.getId())) {
+                // Emprestado ou repetido no próprio pedido
+                item.setStatus(LoanCheckoutItemDTO.Status.UNAVAILABLE);
+            } else {
+                loans.add(Loan.builder()
+                        .book(book)
+                        .customer(customer)
+                        .customerEmail(customerEmail)
+                        .customerId(customerId)
+                        .loanDate(LocalDate.now())
+                        .returned(false)
+                        .openBookId(book.getId())
+                        .build());
+            }
+            failed |= item.getStatus() != LoanCheckoutItemDTO.Status.LOANED;
+            items.add(item);
+        }
+
+        if (failed) {
+            rejectedLoaned.increment(items.stream()
+                    .filter(item -> item.getStatus() == LoanCheckoutItemDTO.Status.UNAVAILABLE).count());
+            if (!partial) {
+                items.stream()
+                        .filter(item -> item.getStatus() == LoanCheckoutItemDTO.Status.LOANED)
+                        .forEach(item -> item.setStatus(LoanCheckoutItemDTO.Status.SKIPPED));
+                return new LoanCheckoutResultDTO(0, items);
+            }
+        }
+        if (loans.isEmpty()) {
+            return new LoanCheckoutResultDTO(0, items);
+        }
+
+        try {
+            loanRepository.saveAll(loans);
+            loanRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            // Livros travados acima; só acontece se tb_book e tb_loan divergirem
+            rejectedConstraint.increment();
             throw new BusinessException("Book already loaned");
         }
-        return loanRepository.save(loan);
+        bookRepository.checkOutAll(bookIds);
+        availabilityIndex.markLoaned(bookIds);
+        dueQueue.markLoaned(loans);
+
+        Map<String, Long> loanIds = new HashMap<>();
+        loans.forEach(loan -> loanIds.put(loan.getBook().getIsbn(), loan.getId()));
+        items.stream()
+                .filter(item -> item.getStatus() == LoanCheckoutItemDTO.Status.LOANED)
+                .forEach(item -> item.setLoanId(loanIds.get(item.getIsbn())));
+        return new LoanCheckoutResultDTO(loans.size(), items);
     }
 
     @Override
@@ -37,16 +234,143 @@ public class LoanServiceImp implements LoanService {
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return loanRepository.save(loan);
+        Book book = loan.getBook();
+        boolean open = !Boolean.TRUE.equals(loan.getReturned());
+        // Reabrir um empréstimo de um livro que já foi emprestado novamente
+        if (book != null && open && bookRepository.reopen(book.getId(), loan.getId()) == 0) {
+            availabilityIndex.set(book.getId(), true);
+            rejectedLoaned.increment();
+            throw new BusinessException("Book already loaned");
+        }
+        if (book != null) {
+            loan.setOpenBookId(open ? book.getId() : null);
+        }
+        Loan updatedLoan;
+        try {
+            updatedLoan = loanRepository.saveAndFlush(loan);
+        } catch (DataIntegrityViolationException e) {
+            rejectedConstraint.increment();
+            throw new BusinessException("Book already loaned");
+        }
+        if (book != null) {
+            if (open) {
+                availabilityIndex.markLoaned(book.getId());
+                dueQueue.markLoaned(updatedLoan);
+            } else {
+                bookRepository.checkIn(book.getId(), loan.getId());
+                availabilityIndex.markReturned(book.getId());
+                dueQueue.markReturned(loan.getId());
+            }
+        }
+        return updatedLoan;
     }
 
+    // Devolução em lote: uma leitura com lock, um update nos empréstimos e outro nos livros,
+    // e uma única notificação ao índice de disponibilidade depois do commit
     @Override
+    @Transactional
+    public LoanReturnResultDTO returnLoans(List<Long> loanIds, List<String> isbns) {
+        List<Long> ids = loanIds == null ? new ArrayList<>() : loanIds;
+        List<String> books = isbns == null ? new ArrayList<>() : isbns;
+        if (ids.isEmpty() && books.isEmpty()) {
+            throw new BusinessException("No loans to return");
+        }
+        if (ids.size() + books.size() > MAX_RETURN_BATCH) {
+            throw new BusinessException("Too many loans to return, the limit is " + MAX_RETURN_BATCH);
+        }
+
+        List<LoanReturnItemDTO> items = new ArrayList<>();
+        Map<Long, List<LoanReturnItemDTO>> itemsByLoan = new LinkedHashMap<>();
+        for (Long id : ids) {
+            LoanReturnItemDTO item = new LoanReturnItemDTO(id, null, LoanReturnItemDTO.Status.NOT_FOUND);
+            items.add(item);
+            itemsByLoan.computeIfAbsent(id, key -> new ArrayList<>()).add(item);
+        }
+        if (!books.isEmpty()) {
+            Map<String, Long> currentLoans = new HashMap<>();
+            for (Object[] row : bookRepository.findCurrentLoanIdsByIsbn(books)) {
+                currentLoans.put((String) row[0], (Long) row[1]);
+            }
+            for (String isbn : books) {
+                Long loanId = currentLoans.get(isbn);
+                LoanReturnItemDTO item = new LoanReturnItemDTO(loanId, isbn, currentLoans.containsKey(isbn)
+                        ? LoanReturnItemDTO.Status.NOT_LOANED
+                        : LoanReturnItemDTO.Status.NOT_FOUND);
+                items.add(item);
+                if (loanId != null) {
+                    itemsByLoan.computeIfAbsent(loanId, key -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+
+        List<Long> returning = new ArrayList<>();
+        List<Long> bookIds = new ArrayList<>();
+        if (!itemsByLoan.isEmpty()) {
+            for (Object[] row : loanRepository.lockForReturn(itemsByLoan.keySet())) {
+                Long loanId = ((Number) row[0]).longValue();
+                boolean returned = Boolean.TRUE.equals(row[2]);
+                LoanReturnItemDTO.Status status = returned
+                        ? LoanReturnItemDTO.Status.ALREADY_RETURNED
+                        : LoanReturnItemDTO.Status.RETURNED;
+                itemsByLoan.get(loanId).forEach(item -> item.setStatus(status));
+                if (!returned) {
+                    returning.add(loanId);
+                    if (row[1] != null) {
+                        bookIds.add(((Number) row[1]).longValue());
+                    }
+                }
+            }
+        }
+        if (!returning.isEmpty()) {
+            loanRepository.markReturned(returning);
+            bookRepository.checkInAll(returning);
+            availabilityIndex.markReturned(bookIds);
+            dueQueue.markReturned(returning);
+        }
+        return new LoanReturnResultDTO(returning.size(), items);
+    }
+
+    // A busca dinâmica retorna os ids na ordem pedida; as entidades vêm num único findAllById
+    @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
-        return loanRepository.findByBookIsbnOrCustomer(
-                loanFilterDTO.getIsbn(),
-                loanFilterDTO.getCustomer(),
-                pageable);
+        checkSort(pageable.getSort());
+        Page<Long> ids = loanSearchRepository.findIds(loanFilterDTO, pageable);
+        return new PageImpl<>(loadInOrder(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Loan> findAfter(LoanFilterDTO loanFilterDTO, Long afterId, int size) {
+        Slice<Long> ids = loanSearchRepository.findIdsAfter(loanFilterDTO, afterId, size);
+        return new SliceImpl<>(loadInOrder(ids.getContent()), ids.getPageable(), ids.hasNext());
+    }
+
+    // A ordenação vem da requisição: propriedade desconhecida é erro do cliente (400)
+    private static void checkSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!LoanSearchQuery.isSortable(order.getProperty())) {
+                throw new BusinessException("Invalid sort property: " + order.getProperty());
+            }
+        }
+    }
+
+    private List<Loan> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Loan> loans = new HashMap<>();
+        loanRepository.findAllById(ids).forEach(loan -> loans.put(loan.getId(), loan));
+        List<Loan> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Loan loan = loans.get(id);
+            if (loan != null) {
+                ordered.add(loan);
+            }
+        }
+        return ordered;
     }
 
     @Override
@@ -54,10 +378,76 @@ public class LoanServiceImp implements LoanService {
         return loanRepository.findByBook(book, pageable);
     }
 
+    @Override
+    public Slice<Loan> getLoansByBookAfter(Book book, Long afterId, int size) {
+        return loanRepository.findByBookAndIdGreaterThan(book, afterId, PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    // A admissão é sempre o update condicional no livro. O índice deste nó é só uma dica: um livro devolvido
+    // em outro nó continua "emprestado" aqui até o próximo empréstimo ou devolução passar por este nó
+    private boolean checkOut(Book book) {
+        Boolean indexed = availabilityIndex.isLoaned(book.getId());
+        boolean admitted = bookRepository.checkOut(book.getId()) == 1;
+        if (indexed != null && indexed == admitted) {
+            log.debug("Índice de disponibilidade divergente do banco para o livro {}: índice={}, banco={}",
+                    book.getId(), indexed, !admitted);
+        }
+        if (!admitted) {
+            availabilityIndex.set(book.getId(), true);
+        }
+        return admitted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<LoanDTO> findDTO(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+        checkSort(pageable.getSort());
+        return loanSearchRepository.findDTO(loanFilterDTO, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<LoanDTO> findDTOAfter(LoanFilterDTO loanFilterDTO, Long afterId, int size) {
+        return loanSearchRepository.findDTOAfter(loanFilterDTO, afterId, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<LoanDTO> getLoanDTOsByBook(Long bookId, Pageable pageable) {
+        return loanRepository.findDTOByBookId(bookId, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<LoanDTO> getLoanDTOsByBookAfter(Long bookId, Long afterId, int size) {
+        return loanRepository.findDTOByBookIdAfter(bookId, afterId, PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VersionDTO getVersionByBook(Long bookId) {
+        return loanRepository.findVersionByBookId(bookId);
+    }
+
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return loanRepository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        LocalDate dueBefore = LocalDate.now().minusDays(loanDays);
+        return loanRepository.findByLoanDateLessThanAndNotReturned(dueBefore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OverdueLoanDTO> getOverdueLoansByIds(List<Long> loanIds) {
+        if (loanIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return loanRepository.findOverdueByIds(loanIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OverdueLoanDTO> getOverdueLoansByCustomerAfter(LocalDate referenceDate, Long afterCustomerId, Long afterId, int size) {
+        LocalDate dueBefore = referenceDate.minusDays(loanDays);
+        return loanRepository.findOverdueByCustomerAfter(dueBefore, afterCustomerId, afterId, PageRequest.of(0, size));
     }
 }
@@ -0,0 +1,36 @@
+package com.rogerio.libraryapi.service.imp;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Conjunto fixo de locks: chaves diferentes caem, em geral, em locks diferentes
+public class StripedLocks {
+
+    private final Lock[] locks;
+
+    public StripedLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes must be positive");
+        }
+        this.locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(Object key) {
+        return locks[Math.floorMod(spread(key == null ? 0 : key.hashCode()), locks.length)];
+    }
+
+    public int size() {
+        return locks.length;
+    }
+
+    // Espalha os bits para ids sequenciais não caírem sempre nos mesmos locks
+    private static int spread(int hash) {
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash;
+    }
+}
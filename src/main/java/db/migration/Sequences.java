@@ -0,0 +1,30 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Sequences pooled (de 50 em 50) usadas pelo Hibernate para inserts em lote. O primeiro valor é o topo do
+// primeiro bloco, que precisa começar depois dos ids já gravados; o início é calculado aqui e a DDL fica portável
+final class Sequences {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private Sequences() {
+    }
+
+    static void createAfterExistingIds(Connection connection, String sequence, String... tables) throws SQLException {
+        long maxId = 0;
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                try (ResultSet resultSet = statement.executeQuery(" select coalesce(max(id), 0) from " + table)) {
+                    resultSet.next();
+                    maxId = Math.max(maxId, resultSet.getLong(1));
+                }
+            }
+            statement.execute(" create sequence " + sequence + " start with " + (maxId + ALLOCATION_SIZE) +
+                    " increment by " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+// Ids dos livros por sequence, para a importação em lote; com IDENTITY cada insert volta ao banco pelo id
+public class V1_2__BookSequence extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Sequences.createAfterExistingIds(context.getConnection(), "seq_book", "tb_book");
+    }
+}
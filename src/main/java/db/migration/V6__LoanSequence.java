@@ -0,0 +1,14 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+// Ids dos empréstimos por sequence, para o insert em lote do Hibernate. Começa depois dos ids
+// existentes, inclusive os arquivados, que mantêm o id original
+public class V6__LoanSequence extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Sequences.createAfterExistingIds(context.getConnection(), "seq_loan", "tb_loan", "tb_loan_archive");
+    }
+}
@@ -0,0 +1,142 @@
+package db.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Cria os clientes a partir do e-mail dos empréstimos (ativos e arquivados) e preenche id_customer.
+// Percorre cada tabela em lotes por id (keyset), com commit e log de progresso a cada lote, sem segurar
+// lock na tabela inteira. Só lê linhas com id_customer nulo, então pode ser executada de novo após uma falha.
+// Empréstimos sem e-mail ficam sem cliente
+@Slf4j
+public class V8__BackfillCustomers extends BaseJavaMigration {
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final String[] TABLES = {"tb_loan", "tb_loan_archive"};
+
+    private long nextId;
+
+    // Cada lote é confirmado separadamente
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        nextId = queryLong(connection, " select coalesce(max(id), 0) + 1 from tb_customer ");
+        for (String table : TABLES) {
+            backfill(connection, table);
+        }
+        // A sequence continua depois dos ids criados aqui (o primeiro valor é o topo do primeiro bloco)
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(" alter sequence seq_customer restart with " + (nextId - 1 + 50));
+        }
+    }
+
+    private void backfill(Connection connection, String table) throws SQLException {
+        long total = queryLong(connection, " select count(*) from " + table +
+                " where id_customer is null and customer_email is not null ");
+        log.info("Backfill de clientes em {}: {} empréstimos", table, total);
+        long afterId = 0;
+        long done = 0;
+        while (true) {
+            List<Object[]> rows = readBatch(connection, table, afterId);
+            if (rows.isEmpty()) {
+                break;
+            }
+            Map<String, Long> customers = new HashMap<>();
+            try (PreparedStatement update = connection.prepareStatement(
+                    " update " + table + " set id_customer = ? where id = ? ")) {
+                for (Object[] row : rows) {
+                    String email = normalize((String) row[2]);
+                    if (email == null) {
+                        continue;
+                    }
+                    Long customerId = customers.get(email);
+                    if (customerId == null) {
+                        customerId = findOrCreate(connection, (String) row[1], email);
+                        customers.put(email, customerId);
+                    }
+                    update.setLong(1, customerId);
+                    update.setLong(2, (Long) row[0]);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            done += rows.size();
+            log.info("Backfill de clientes em {}: {} de {} empréstimos ({}%)",
+                    table, done, total, total == 0 ? 100 : Math.min(100, done * 100 / total));
+        }
+    }
+
+    private List<Object[]> readBatch(Connection connection, String table, long afterId) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                " select id, customer, customer_email from " + table +
+                " where id > ? and id_customer is null and customer_email is not null order by id limit ? ")) {
+            select.setLong(1, afterId);
+            select.setInt(2, BATCH_SIZE);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(new Object[]{resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3)});
+                }
+            }
+        }
+        return rows;
+    }
+
+    // O nome é o do primeiro empréstimo encontrado para o e-mail
+    private Long findOrCreate(Connection connection, String name, String email) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(" select id from tb_customer where email = ? ")) {
+            select.setString(1, email);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getLong(1);
+                }
+            }
+        }
+        long id = nextId++;
+        try (PreparedStatement insert = connection.prepareStatement(
+                " insert into tb_customer (id, name, email, created_at) values (?, ?, ?, current_timestamp) ")) {
+            insert.setLong(1, id);
+            insert.setString(2, name);
+            insert.setString(3, email);
+            insert.executeUpdate();
+        }
+        return id;
+    }
+
+    // Mesma regra de CustomerServiceImp.normalizeEmail; a migração não depende do código da aplicação
+    static String normalize(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- O resumo de atrasados de um cliente (até 50 livros) passa de 2000 caracteres: o texto vai para uma coluna
+-- sem limite, para a dead letter não falhar justamente com a mensagem que precisa ser reenviada
+alter table tb_mail_dead_letter add column message_text text;
+update tb_mail_dead_letter set message_text = message;
+alter table tb_mail_dead_letter drop column message;
+alter table tb_mail_dead_letter rename column message_text to message;
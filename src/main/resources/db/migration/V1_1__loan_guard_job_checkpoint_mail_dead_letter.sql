@@ -0,0 +1,26 @@
+-- Alterações feitas nas entidades antes do esquema ser versionado
+
+-- Um empréstimo aberto por livro, garantido pelo banco
+alter table tb_loan add column open_book_id bigint;
+alter table tb_loan add constraint uk_loan_open_book_id unique (open_book_id);
+
+-- Progresso dos jobs, para retomar uma execução interrompida
+create table tb_job_checkpoint (
+    name varchar(100) not null,
+    run_date date,
+    last_id bigint,
+    completed boolean,
+    updated_at timestamp,
+    constraint pk_job_checkpoint primary key (name)
+);
+
+-- E-mails que esgotaram as tentativas de envio
+create table tb_mail_dead_letter (
+    id bigint generated by default as identity,
+    recipients clob,
+    message varchar(2000),
+    error varchar(1000),
+    attempts integer,
+    created_at timestamp,
+    constraint pk_mail_dead_letter primary key (id)
+);
@@ -0,0 +1,20 @@
+-- Esquema inicial, equivalente ao que o Hibernate gerava a partir das entidades
+
+create table tb_book (
+    id bigint generated by default as identity,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    constraint pk_book primary key (id)
+);
+
+create table tb_loan (
+    id bigint generated by default as identity,
+    customer varchar(100),
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    customer_email varchar(255),
+    constraint pk_loan primary key (id),
+    constraint fk_loan_book foreign key (id_book) references tb_book (id)
+);
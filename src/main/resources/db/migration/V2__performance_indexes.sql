@@ -0,0 +1,11 @@
+-- findByIsbn / existsByIsbn e a verificação de duplicidade da importação
+create unique index idx_book_isbn on tb_book (isbn);
+
+-- findByBook e a verificação de empréstimo aberto por livro
+create index idx_loan_book_returned on tb_loan (id_book, returned);
+
+-- Consulta de empréstimos atrasados
+create index idx_loan_date_returned on tb_loan (loan_date, returned);
+
+-- Filtro por cliente nas listagens
+create index idx_loan_customer on tb_loan (customer);
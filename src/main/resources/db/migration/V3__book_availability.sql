@@ -0,0 +1,11 @@
+-- Disponibilidade desnormalizada no livro: mantida na admissão e na devolução do empréstimo
+alter table tb_book add column available boolean default true not null;
+alter table tb_book add column current_loan_id bigint;
+
+-- Carga inicial a partir dos empréstimos abertos
+update tb_book set available = false,
+    current_loan_id = ( select max(l.id) from tb_loan l where l.open_book_id = tb_book.id )
+where exists ( select 1 from tb_loan l where l.open_book_id = tb_book.id );
+
+-- Filtro available=true da listagem de livros, em ordem de id para o cursor
+create index idx_book_available on tb_book (available, id);
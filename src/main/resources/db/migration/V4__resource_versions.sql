@@ -0,0 +1,8 @@
+-- Versão e data de alteração para os validadores de GET condicional (ETag / Last-Modified)
+alter table tb_book add column version bigint default 0 not null;
+alter table tb_book add column updated_at timestamp;
+update tb_book set updated_at = current_timestamp;
+
+alter table tb_loan add column version bigint default 0 not null;
+alter table tb_loan add column updated_at timestamp;
+update tb_loan set updated_at = current_timestamp;
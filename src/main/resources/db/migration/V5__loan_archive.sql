@@ -0,0 +1,17 @@
+-- Histórico frio: empréstimos devolvidos há mais tempo que application.loans.archive.after-days
+create table tb_loan_archive (
+    id bigint not null,
+    customer varchar(100),
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    customer_email varchar(255),
+    version bigint,
+    updated_at timestamp,
+    archived_at timestamp,
+    constraint pk_loan_archive primary key (id),
+    constraint fk_loan_archive_book foreign key (id_book) references tb_book (id)
+);
+
+-- Histórico de um livro em ordem de id (listagem e cursor)
+create index idx_loan_archive_book on tb_loan_archive (id_book, id);
@@ -0,0 +1,26 @@
+-- Cliente normalizado: o e-mail (minúsculo, sem espaços) identifica o cliente.
+-- tb_loan mantém customer/customer_email como estavam no momento do empréstimo
+
+create sequence seq_customer start with 50 increment by 50;
+
+create table tb_customer (
+    id bigint not null,
+    name varchar(100),
+    email varchar(255),
+    created_at timestamp,
+    constraint pk_customer primary key (id)
+);
+
+create unique index idx_customer_email on tb_customer (email);
+
+alter table tb_loan add column id_customer bigint;
+
+-- Empréstimos de um cliente em ordem de id só pelo índice, sem ler a tabela.
+-- Criado antes da chave estrangeira para o H2 reaproveitá-lo em vez de criar outro
+create index idx_loan_customer_cover on tb_loan (id_customer, id, id_book, loan_date, returned);
+
+alter table tb_loan add constraint fk_loan_customer foreign key (id_customer) references tb_customer (id);
+
+alter table tb_loan_archive add column id_customer bigint;
+
+-- O preenchimento a partir dos empréstimos existentes fica em V8__BackfillCustomers (em lotes)
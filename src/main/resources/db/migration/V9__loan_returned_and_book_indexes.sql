@@ -0,0 +1,19 @@
+-- Empréstimos antigos com returned nulo valem como abertos: a coluna passa a ser obrigatória e as
+-- consultas de abertos comparam returned = false, o que deixa idx_loan_book_returned e
+-- idx_loan_date_returned usarem as duas colunas
+update tb_loan set returned = false where returned is null;
+alter table tb_loan alter column returned set default false;
+alter table tb_loan alter column returned set not null;
+
+-- O H2 cria para cada chave estrangeira um índice próprio, com nome gerado, e o prefere nas buscas só
+-- por id_book. Recriada depois de um índice nomeado com as mesmas colunas, a chave reaproveita esse índice
+alter table tb_loan drop constraint fk_loan_book;
+create index idx_loan_book on tb_loan (id_book);
+alter table tb_loan add constraint fk_loan_book foreign key (id_book) references tb_book (id);
+
+-- No H2 todo índice termina na chave primária, então (id_book) já ordena como (id_book, id):
+-- o índice do arquivo vira o da própria chave estrangeira, sem um segundo índice igual
+alter table tb_loan_archive drop constraint fk_loan_archive_book;
+drop index idx_loan_archive_book;
+create index idx_loan_archive_book on tb_loan_archive (id_book);
+alter table tb_loan_archive add constraint fk_loan_archive_book foreign key (id_book) references tb_book (id);
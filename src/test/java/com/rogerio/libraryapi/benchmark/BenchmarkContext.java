@@ -0,0 +1,82 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.LibraryApiApplication;
+import com.rogerio.libraryapi.cache.BookAvailabilityIndex;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.search.BookSearchIndex;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Sobe a aplicação (porta livre, exigida pelo Swagger) sobre um H2 próprio e popula livros e empréstimos
+final class BenchmarkContext {
+
+    static final String[] WORDS = {"sonho", "mar", "cidade", "noite", "tempo", "casa", "guerra", "amor"};
+
+    private static final int SEED_BATCH = 1000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                        "spring.main.banner-mode=off",
+                        "spring.boot.admin.client.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.file=")
+                .properties(properties)
+                .run();
+    }
+
+    // Livros com títulos repetindo um vocabulário pequeno; empréstimos em aberto nos livros pares
+    static void seed(ConfigurableApplicationContext context, int books, boolean loans) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        LoanRepository loanRepository = context.getBean(LoanRepository.class);
+
+        for (int from = 0; from < books; from += SEED_BATCH) {
+            List<Book> batch = new ArrayList<>(SEED_BATCH);
+            for (int i = from; i < Math.min(from + SEED_BATCH, books); i++) {
+                batch.add(book(i));
+            }
+            List<Book> saved = bookRepository.saveAll(batch);
+            if (loans) {
+                List<Loan> loanBatch = new ArrayList<>();
+                for (Book book : saved) {
+                    if (book.getId() % 2 == 0) {
+                        loanBatch.add(Loan.builder()
+                                .book(book)
+                                .customer("Cliente " + book.getId() % 500)
+                                .customerEmail("cliente" + book.getId() % 500 + "@email.com")
+                                .loanDate(LocalDate.now().minusDays(book.getId() % 10))
+                                .returned(false)
+                                .openBookId(book.getId())
+                                .build());
+                    }
+                }
+                loanRepository.saveAll(loanBatch);
+            }
+        }
+
+        // Os índices em memória foram montados no ApplicationReadyEvent, antes da carga
+        context.getBean(BookSearchIndex.class).rebuild();
+        context.getBean(BookAvailabilityIndex.class).rebuild();
+    }
+
+    static Book book(int i) {
+        return Book.builder()
+                .title("Livro " + WORDS[i % WORDS.length] + " " + i)
+                .author("Autor " + i % 100)
+                .isbn("bench-" + i)
+                .build();
+    }
+}
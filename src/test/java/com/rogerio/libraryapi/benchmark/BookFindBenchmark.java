@@ -0,0 +1,74 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// BookServiceImp.find com o filtro por Example (mode=example) e com o índice em memória (mode=index)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookFindBenchmark {
+
+    @Param({"1000", "10000"})
+    private int datasetSize;
+
+    @Param({"example", "index"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+
+    private final PageRequest pageRequest = PageRequest.of(0, 10);
+    private Book titleFilter;
+    private Book titleAuthorFilter;
+    private Book isbnFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("application.books.search.mode=" + mode);
+        BenchmarkContext.seed(context, datasetSize, false);
+        bookService = context.getBean(BookService.class);
+
+        titleFilter = Book.builder().title("cidade").build();
+        titleAuthorFilter = Book.builder().title("noite").author("autor 7").build();
+        isbnFilter = Book.builder().isbn("bench-" + datasetSize / 2).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> findByTitle() {
+        return bookService.find(titleFilter, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Book> findByTitleAndAuthor() {
+        return bookService.find(titleAuthorFilter, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Book> findByIsbn() {
+        return bookService.find(isbnFilter, pageRequest);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookFindBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
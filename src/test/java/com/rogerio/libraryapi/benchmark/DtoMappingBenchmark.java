@@ -0,0 +1,86 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.LibraryApiApplication;
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.mapper.BookMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Compara o ModelMapper, usado antes pelos controllers, com os mappers escritos à mão
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    private Book book;
+    private BookDTO bookDTO;
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        LibraryApiApplication application = new LibraryApiApplication();
+        modelMapper = new ModelMapper();
+        bookMapper = application.bookMapper();
+        loanMapper = new LoanMapper(bookMapper);
+
+        book = Book.builder().id(1l).title("Meu sonho").author("Rogério").isbn("12345").build();
+        bookDTO = BookDTO.builder().title("Meu sonho").author("Rogério").isbn("12345").build();
+        loan = Loan.builder().id(1l).book(book).customer("Fulano").customerEmail("fulano@email.com")
+                .loanDate(LocalDate.now()).build();
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOModelMapper() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOMapper() {
+        return bookMapper.toDTO(book);
+    }
+
+    @Benchmark
+    public Book dtoToBookModelMapper() {
+        return modelMapper.map(bookDTO, Book.class);
+    }
+
+    @Benchmark
+    public Book dtoToBookMapper() {
+        return bookMapper.toEntity(bookDTO);
+    }
+
+    // Mesmo fluxo usado anteriormente pelos controllers: duas conversões por empréstimo
+    @Benchmark
+    public LoanDTO loanToDTOModelMapper() {
+        LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+        loanDTO.setBookDTO(modelMapper.map(loan.getBook(), BookDTO.class));
+        return loanDTO;
+    }
+
+    @Benchmark
+    public LoanDTO loanToDTOMapper() {
+        return loanMapper.toDTO(loan);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DtoMappingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.dto.LoanCheckoutItemDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutResultDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.service.BookService;
+import com.rogerio.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Empréstimo de vários livros para o mesmo cliente: um POST /api/loans por livro contra o lote único.
+// As duas variantes devolvem os livros em lote ao final, com o mesmo custo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanCheckoutBenchmark {
+
+    @Param({"1000", "10000"})
+    private int datasetSize;
+
+    @Param({"10"})
+    private int booksPerRequest;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private LoanService loanService;
+
+    private List<List<String>> requests;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, datasetSize, true);
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+
+        // Livros ímpares estão livres; cada pedido leva booksPerRequest deles
+        List<String> freeIsbns = context.getBean(BookRepository.class)
+                .findAll(PageRequest.of(0, 2000, Sort.by("id"))).getContent().stream()
+                .filter(book -> book.getId() % 2 != 0)
+                .map(Book::getIsbn)
+                .collect(Collectors.toList());
+        requests = new ArrayList<>();
+        for (int from = 0; from + booksPerRequest <= freeIsbns.size(); from += booksPerRequest) {
+            requests.add(freeIsbns.subList(from, from + booksPerRequest));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Caminho atual do LoanController.create, repetido para cada ISBN
+    @Benchmark
+    public int perItem() {
+        List<Long> loanIds = new ArrayList<>();
+        for (String isbn : nextRequest()) {
+            Book book = bookService.getBookByIsbn(isbn).orElseThrow(IllegalStateException::new);
+            loanIds.add(loanService.save(Loan.builder()
+                    .book(book)
+                    .customer("Fulano")
+                    .customerEmail("fulano@email.com")
+                    .loanDate(LocalDate.now())
+                    .build()).getId());
+        }
+        return returnAll(loanIds);
+    }
+
+    @Benchmark
+    public int batch() {
+        LoanCheckoutResultDTO result = loanService.checkout("Fulano", "fulano@email.com", nextRequest(), false);
+        return returnAll(result.getItems().stream()
+                .map(LoanCheckoutItemDTO::getLoanId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    private List<String> nextRequest() {
+        return requests.get(Math.floorMod(next.getAndIncrement(), requests.size()));
+    }
+
+    private int returnAll(List<Long> loanIds) {
+        return (int) loanService.returnLoans(loanIds, null).getReturned();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoanCheckoutBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,30 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.mapper.BookMapper;
+
+// Conversão direta de Loan para LoanDTO, incluindo o livro emprestado; usada só nos benchmarks,
+// já que os controllers recebem LoanDTO pronto da consulta
+public class LoanMapper {
+
+    private final BookMapper bookMapper;
+
+    public LoanMapper(BookMapper bookMapper) {
+        this.bookMapper = bookMapper;
+    }
+
+    public LoanDTO toDTO(Loan loan) {
+        if (loan == null) {
+            return null;
+        }
+        Book book = loan.getBook();
+        return new LoanDTO(
+                loan.getId(),
+                book == null ? null : book.getIsbn(),
+                loan.getCustomer(),
+                loan.getCustomerEmail(),
+                bookMapper.toDTO(book));
+    }
+}
@@ -0,0 +1,67 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.mapper.BookMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Garante que o benchmark compara o ModelMapper com uma conversão equivalente
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanMapperTest {
+
+    LoanMapper loanMapper = new LoanMapper(new BookMapper());
+
+    @Test
+    @DisplayName("A - Deve converter um empréstimo com o livro aninhado")
+    public void toDTOWithBookTest(){
+        // Cenário
+        Book book = Book.builder().id(1l).title("Meu sonho").author("Rogério").isbn("12345").build();
+        Loan loan = Loan.builder().id(2l).book(book).customer("Fulano")
+                .customerEmail("fulano@email.com").loanDate(LocalDate.now()).build();
+
+        // Execução
+        LoanDTO dto = loanMapper.toDTO(loan);
+
+        // Verificação
+        assertEquals(2l, dto.getId());
+        assertEquals("12345", dto.getIsbn());
+        assertEquals("Fulano", dto.getCustomer());
+        assertEquals("fulano@email.com", dto.getCustomer_email());
+        assertEquals(1l, dto.getBookDTO().getId());
+        assertEquals("Meu sonho", dto.getBookDTO().getTitle());
+        assertEquals("Rogério", dto.getBookDTO().getAuthor());
+        assertEquals("12345", dto.getBookDTO().getIsbn());
+    }
+
+    @Test
+    @DisplayName("B - Deve converter um empréstimo sem livro")
+    public void toDTOWithoutBookTest(){
+        // Cenário
+        Loan loan = Loan.builder().id(2l).customer("Fulano").customerEmail("fulano@email.com").build();
+
+        // Execução
+        LoanDTO dto = loanMapper.toDTO(loan);
+
+        // Verificação
+        assertEquals(2l, dto.getId());
+        assertNull(dto.getIsbn());
+        assertNull(dto.getBookDTO());
+    }
+
+    @Test
+    @DisplayName("C - Deve retornar nulo ao converter um empréstimo nulo")
+    public void nullTest(){
+        // Execução e Verificação
+        assertNull(loanMapper.toDTO(null));
+    }
+}
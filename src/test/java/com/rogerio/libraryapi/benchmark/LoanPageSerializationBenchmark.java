@@ -0,0 +1,70 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.mapper.BookMapper;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Serialização de Page<LoanDTO> pelo ObjectMapper do Spring, como nas respostas de LoanController
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoanPageSerializationBenchmark {
+
+    @Param({"1000"})
+    private int datasetSize;
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private Page<LoanDTO> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, datasetSize, true);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        PageRequest pageRequest = PageRequest.of(0, pageSize, Sort.by("id"));
+        LoanMapper loanMapper = new LoanMapper(context.getBean(BookMapper.class));
+        Page<Loan> loans = context.getBean(LoanRepository.class).findAll(pageRequest);
+        List<LoanDTO> content = loans.getContent().stream().map(loanMapper::toDTO).collect(Collectors.toList());
+        page = new PageImpl<>(content, pageRequest, loans.getTotalElements());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoanPageSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
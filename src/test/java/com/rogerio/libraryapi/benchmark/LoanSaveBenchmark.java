@@ -0,0 +1,92 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.exceptions.BusinessException;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Admissão de LoanServiceImp.save: empréstimo de livro livre (seguido da devolução) e recusa de livro emprestado
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanSaveBenchmark {
+
+    @Param({"1000", "10000"})
+    private int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private LoanService loanService;
+
+    private List<Book> freeBooks;
+    private List<Book> loanedBooks;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, datasetSize, true);
+        loanService = context.getBean(LoanService.class);
+
+        List<Book> books = context.getBean(BookRepository.class)
+                .findAll(PageRequest.of(0, 2000, Sort.by("id"))).getContent();
+        freeBooks = books.stream().filter(book -> book.getId() % 2 != 0).collect(Collectors.toList());
+        loanedBooks = books.stream().filter(book -> book.getId() % 2 == 0).collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Loan admitAndReturn() {
+        Book book = freeBooks.get(Math.floorMod(next.getAndIncrement(), freeBooks.size()));
+        Loan loan = loanService.save(Loan.builder()
+                .book(book)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .loanDate(LocalDate.now())
+                .build());
+        loan.setReturned(true);
+        return loanService.update(loan);
+    }
+
+    @Benchmark
+    public void rejectLoaned(Blackhole blackhole) {
+        Book book = loanedBooks.get(Math.floorMod(next.getAndIncrement(), loanedBooks.size()));
+        try {
+            blackhole.consume(loanService.save(Loan.builder()
+                    .book(book)
+                    .customer("Fulano")
+                    .customerEmail("fulano@email.com")
+                    .loanDate(LocalDate.now())
+                    .build()));
+        } catch (BusinessException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoanSaveBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
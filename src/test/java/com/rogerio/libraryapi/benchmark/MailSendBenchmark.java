@@ -0,0 +1,133 @@
+package com.rogerio.libraryapi.benchmark;
+
+import com.rogerio.libraryapi.repository.MailDeadLetterRepository;
+import com.rogerio.libraryapi.service.imp.EmailServiceImp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Vazão do EmailServiceImp: destinatários divididos em mensagens, fila limitada e servidor com latência fixa.
+// Cada operação enfileira todos os destinatários e espera a entrega de todas as mensagens
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MailSendBenchmark {
+
+    @Param({"100000"})
+    private int recipients;
+
+    @Param({"1"})
+    private long latencyMillis;
+
+    private EmailServiceImp emailService;
+    private LatencyMailSender mailSender;
+    private List<String> mailsList;
+
+    @Setup
+    public void setUp() {
+        mailSender = new LatencyMailSender(latencyMillis);
+        emailService = new EmailServiceImp(mailSender, Mockito.mock(MailDeadLetterRepository.class),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(emailService, "remetent", "mail@library-api.com");
+        ReflectionTestUtils.setField(emailService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(emailService, "senders", 8);
+        ReflectionTestUtils.setField(emailService, "recipientsPerMessage", 50);
+        emailService.start();
+        mailsList = IntStream.range(0, recipients)
+                .mapToObj(i -> "customer" + i + "@email.com")
+                .collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        emailService.stop();
+        if (mailSender.sentRecipients.get() == 0) {
+            throw new IllegalStateException("Nenhum e-mail enviado");
+        }
+    }
+
+    @Benchmark
+    public void sendMails() {
+        emailService.sendMails("Atrasado", mailsList).join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MailSendBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    // Servidor de e-mail em memória com latência fixa por mensagem
+    static class LatencyMailSender implements JavaMailSender {
+        private final AtomicInteger sentRecipients = new AtomicInteger();
+        private final long latencyMillis;
+
+        LatencyMailSender(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public void send(SimpleMailMessage simpleMessage) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sentRecipients.addAndGet(simpleMessage.getBcc().length);
+        }
+
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+            Arrays.stream(simpleMessages).forEach(this::send);
+        }
+
+        @Override
+        public MimeMessage createMimeMessage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MimeMessage createMimeMessage(InputStream contentStream) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessage mimeMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessagePreparator mimeMessagePreparator) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessagePreparator... mimeMessagePreparators) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.rogerio.libraryapi.cache;
+
+import com.rogerio.libraryapi.entity.JobCheckpoint;
+import com.rogerio.libraryapi.repository.JobCheckpointRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanDueQueueTest {
+
+    LoanDueQueue dueQueue;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    JobCheckpointRepository checkpointRepository;
+
+    ApplicationEventPublisher publisher = Mockito.mock(ApplicationEventPublisher.class);
+
+    // Eventos publicados pela thread da fila
+    List<List<Long>> fired = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void setUp(){
+        this.dueQueue = new LoanDueQueue(loanRepository, checkpointRepository, publisher);
+        doAnswer(invocation -> {
+            fired.add(((LoanDueQueue.LoansOverdueEvent) invocation.getArgument(0)).getLoanIds());
+            return null;
+        }).when(publisher).publishEvent(any(Object.class));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        dueQueue.stop();
+    }
+
+    @Test
+    @DisplayName("A - Deve disparar cada empréstimo quando ele vencer e ignorar os devolvidos")
+    public void fireWhenDueTest() throws Exception {
+        // Cenário: dois vencidos, um devolvido antes de vencer e um que vence só amanhã
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        dueQueue.schedule(1l, today, now - 1000);
+        dueQueue.schedule(2l, today, now + 300);
+        dueQueue.schedule(3l, today, now + 100);
+        dueQueue.schedule(4l, today.plusDays(1), now + 60_000);
+        dueQueue.markReturned(3l);
+
+        // Execução
+        dueQueue.start();
+        awaitFired(2);
+
+        // Verificação: o vencido sai na hora, o seguinte só no seu instante
+        Assertions.assertEquals(fired.get(0), Arrays.asList(1l));
+        Assertions.assertEquals(fired.get(1), Arrays.asList(2l));
+        Assertions.assertEquals(dueQueue.size(), 1);
+        Thread.sleep(200);
+        Assertions.assertEquals(fired.size(), 2);
+    }
+
+    @Test
+    @DisplayName("B - Deve carregar na subida só os vencimentos depois do último dia publicado")
+    public void loadAfterCheckpointTest() throws Exception {
+        // Cenário: o último dia publicado foi anteontem; prazo de 4 dias
+        LocalDate firedUntil = LocalDate.now().minusDays(2);
+        when(checkpointRepository.findById(LoanDueQueue.TIMER_JOB)).thenReturn(Optional.of(JobCheckpoint.builder()
+                .name(LoanDueQueue.TIMER_JOB).runDate(firedUntil).build()));
+        when(loanRepository.findOpenLoanDatesAfter(firedUntil.minusDays(4))).thenReturn(Arrays.asList(
+                new Object[]{10l, LocalDate.now().minusDays(5)},
+                new Object[]{11l, LocalDate.now()}));
+
+        // Execução: o vencimento de ontem (perdido com a aplicação parada) dispara na subida
+        dueQueue.load();
+        dueQueue.start();
+        awaitFired(1);
+
+        // Verificação
+        Assertions.assertEquals(fired.get(0), Arrays.asList(10l));
+        Assertions.assertEquals(dueQueue.size(), 1);
+        ArgumentCaptor<JobCheckpoint> checkpoint = ArgumentCaptor.forClass(JobCheckpoint.class);
+        verify(checkpointRepository, timeout(1000)).save(checkpoint.capture());
+        Assertions.assertEquals(checkpoint.getValue().getRunDate(), LocalDate.now().minusDays(1));
+    }
+
+    @Test
+    @DisplayName("C - Deve carregar todos os abertos na primeira subida e disparar na hora os já vencidos")
+    public void loadWithoutCheckpointTest() throws Exception {
+        // Cenário: sem checkpoint; um empréstimo venceu há dias e outro vence daqui a dois dias
+        when(checkpointRepository.findById(LoanDueQueue.TIMER_JOB)).thenReturn(Optional.empty());
+        when(loanRepository.findOpenLoanDates()).thenReturn(Arrays.asList(
+                new Object[]{20l, LocalDate.now().minusDays(30)},
+                new Object[]{21l, LocalDate.now().minusDays(2)}));
+
+        // Execução
+        dueQueue.load();
+        dueQueue.start();
+        awaitFired(1);
+
+        // Verificação
+        Assertions.assertEquals(fired.get(0), Arrays.asList(20l));
+        Assertions.assertEquals(dueQueue.size(), 1);
+        verify(loanRepository, never()).findOpenLoanDatesAfter(any(LocalDate.class));
+    }
+
+    @Test
+    @DisplayName("D - Deve repetir a notificação que falhou sem segurar os próximos vencimentos nem passar o checkpoint dela")
+    public void retryFailedPublishTest() throws Exception {
+        // Cenário: a primeira notificação do empréstimo 30 falha; o 31 vence logo depois
+        ReflectionTestUtils.setField(dueQueue, "retryDelayMillis", 200L);
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        List<LocalDate> checkpointsBeforeRetry = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<Long> loanIds = ((LoanDueQueue.LoansOverdueEvent) invocation.getArgument(0)).getLoanIds();
+            if (loanIds.contains(30l) && failedOnce.compareAndSet(false, true)) {
+                throw new IllegalStateException("Banco indisponível");
+            }
+            fired.add(loanIds);
+            return null;
+        }).when(publisher).publishEvent(any(Object.class));
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> {
+            if (!fired.contains(Arrays.asList(30l))) {
+                checkpointsBeforeRetry.add(((JobCheckpoint) invocation.getArgument(0)).getRunDate());
+            }
+            return invocation.getArgument(0);
+        });
+        long now = System.currentTimeMillis();
+        dueQueue.schedule(30l, yesterday, now - 1000);
+        dueQueue.schedule(31l, LocalDate.now(), now + 20);
+
+        // Execução
+        dueQueue.start();
+        awaitFired(2);
+
+        // Verificação: o 31 saiu antes da nova tentativa do 30; nenhum checkpoint chegou ao dia do 30 antes dela
+        Assertions.assertEquals(fired.get(0), Arrays.asList(31l));
+        Assertions.assertEquals(fired.get(1), Arrays.asList(30l));
+        Assertions.assertTrue(checkpointsBeforeRetry.stream().allMatch(day -> day.isBefore(yesterday)));
+        Assertions.assertEquals(dueQueue.size(), 0);
+    }
+
+    @Test
+    @DisplayName("E - Deve tirar da fila o lote que esgotou as tentativas")
+    public void dropAfterMaxAttemptsTest() throws Exception {
+        // Cenário: a notificação sempre falha
+        ReflectionTestUtils.setField(dueQueue, "retryDelayMillis", 10L);
+        ReflectionTestUtils.setField(dueQueue, "maxAttempts", 3);
+        doThrow(new IllegalStateException("Banco indisponível")).when(publisher).publishEvent(any(Object.class));
+        dueQueue.schedule(40l, LocalDate.now().minusDays(1), System.currentTimeMillis() - 1000);
+
+        // Execução
+        dueQueue.start();
+
+        // Verificação
+        verify(publisher, timeout(2000).times(3)).publishEvent(any(Object.class));
+        Thread.sleep(100);
+        verify(publisher, times(3)).publishEvent(any(Object.class));
+        Assertions.assertEquals(dueQueue.size(), 0);
+    }
+
+    private void awaitFired(int events) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fired.size() < events && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(fired.size(), events);
+    }
+}
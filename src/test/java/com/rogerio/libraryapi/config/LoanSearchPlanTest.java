@@ -0,0 +1,104 @@
+package com.rogerio.libraryapi.config;
+
+import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.repository.LoanSearchQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// O analyze gera as estatísticas usadas pelo otimizador e confirma a transação em curso no H2, então este
+// teste roda fora da transação do @DataJpaTest: os dados são gravados antes e removidos depois de cada teste
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LoanSearchPlanTest {
+
+    // Ids dos dados do teste de planos, fora da faixa usada pelos outros testes
+    private static final long PLAN_IDS = 900000;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // 200 livros e 2000 empréstimos, 10% em aberto
+    @BeforeEach
+    public void setUp(){
+        for (int i = 1; i <= 200; i++) {
+            jdbcTemplate.update("insert into tb_book (id, title, author, isbn) values (?, 'Livro', 'Autor', ?)",
+                    PLAN_IDS + i, "plan-" + i);
+        }
+        for (int i = 1; i <= 2000; i++) {
+            jdbcTemplate.update("insert into tb_loan (id, customer, id_book, loan_date, returned) values (?, ?, ?, ?, ?)",
+                    PLAN_IDS + i, "Cliente " + i % 300, PLAN_IDS + i % 200 + 1,
+                    Date.valueOf(LocalDate.now().minusDays(i % 400)), i % 10 != 0);
+        }
+        jdbcTemplate.execute("analyze");
+    }
+
+    @AfterEach
+    public void tearDown(){
+        jdbcTemplate.update("delete from tb_loan where id > ?", PLAN_IDS);
+        jdbcTemplate.update("delete from tb_book where id > ?", PLAN_IDS);
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    @DisplayName("A - Cada combinação de filtros da busca de empréstimos deve usar um índice")
+    public void loanSearchPlansTest(){
+        // Cenário: dados gravados em setUp
+        LocalDate from = LocalDate.now().minusDays(30);
+        Map<LoanFilterDTO, List<String>> expected = new LinkedHashMap<>();
+        expected.put(LoanFilterDTO.builder().isbn("plan-5").build(), Arrays.asList("idx_book_isbn"));
+        expected.put(LoanFilterDTO.builder().customer("Cliente 5").build(), Arrays.asList("idx_loan_customer"));
+        expected.put(LoanFilterDTO.builder().customerPrefix("Cliente 1").build(), Arrays.asList("idx_loan_customer"));
+        expected.put(LoanFilterDTO.builder().loanDateFrom(from).loanDateTo(LocalDate.now()).build(), Arrays.asList("idx_loan_date_returned"));
+        expected.put(LoanFilterDTO.builder().loanDateTo(LocalDate.now().minusDays(390)).build(), Arrays.asList("idx_loan_date_returned"));
+        expected.put(LoanFilterDTO.builder().returned(false).build(), Arrays.asList("primary_key", "idx_loan_book_returned"));
+        expected.put(LoanFilterDTO.builder().returned(true).build(), Arrays.asList("primary_key", "idx_loan_book_returned"));
+        expected.put(new LoanFilterDTO(), Arrays.asList("primary_key", "direct lookup"));
+        expected.put(LoanFilterDTO.builder().isbn("plan-5").customer("Cliente 5").build(), Arrays.asList("idx_book_isbn"));
+        expected.put(LoanFilterDTO.builder().isbn("plan-5").returned(false).build(), Arrays.asList("idx_book_isbn"));
+        expected.put(LoanFilterDTO.builder().isbn("plan-5").loanDateFrom(from).build(), Arrays.asList("idx_book_isbn"));
+        expected.put(LoanFilterDTO.builder().customer("Cliente 5").returned(false).build(), Arrays.asList("idx_loan_customer"));
+        expected.put(LoanFilterDTO.builder().customer("Cliente 5").loanDateFrom(from).build(), Arrays.asList("idx_loan_customer"));
+        expected.put(LoanFilterDTO.builder().customerPrefix("Cliente 1").returned(true).build(), Arrays.asList("idx_loan_customer"));
+        expected.put(LoanFilterDTO.builder().loanDateFrom(from).returned(false).build(), Arrays.asList("idx_loan_date_returned"));
+
+        for (Map.Entry<LoanFilterDTO, List<String>> entry : expected.entrySet()) {
+            LoanSearchQuery query = LoanSearchQuery.of(entry.getKey());
+
+            // Execução: listagem e contagem
+            for (String sql : Arrays.asList(query.selectDTOs(Sort.unsorted()), query.count())) {
+                String plan = String.join(" ", namedJdbcTemplate.queryForList("explain " + sql,
+                        query.getParameters(), String.class)).toLowerCase(Locale.ROOT);
+
+                // Verificação: sem filtro seletivo vale a chave primária (ordem do id), um índice que cubra returned
+                // ou, na contagem sem filtro, a leitura direta do total
+                Assertions.assertTrue(entry.getValue().stream().anyMatch(plan::contains), entry.getKey() + " -> " + plan);
+            }
+        }
+    }
+}
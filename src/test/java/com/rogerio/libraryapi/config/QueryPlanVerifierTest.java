@@ -0,0 +1,72 @@
+package com.rogerio.libraryapi.config;
+
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.repository.CustomerRepository;
+import com.rogerio.libraryapi.repository.LoanArchiveRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class QueryPlanVerifierTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    LoanArchiveRepository loanArchiveRepository;
+
+    @Test
+    @DisplayName("A - Deve usar os índices das migrações nos planos das consultas")
+    public void queryPlansUseIndexesTest(){
+        // Execução
+        List<String> problems = new QueryPlanVerifier(jdbcTemplate, transactionManager,
+                bookRepository, loanRepository, customerRepository, loanArchiveRepository).verify();
+
+        // Verificação
+        Assertions.assertTrue(problems.isEmpty(), problems.toString());
+    }
+
+    @Test
+    @DisplayName("B - Deve apontar a consulta quando o índice não existir")
+    public void missingIndexTest(){
+        // Cenário: consulta real de repositório com um índice que não existe
+        List<QueryPlanVerifier.PlanCheck> checks = Arrays.asList(QueryPlanVerifier.PlanCheck.repository(
+                "LoanRepository.findArchivableIds", "idx_loan_returned",
+                () -> loanRepository.findArchivableIds(LocalDate.now(), 0L, PageRequest.of(0, 10))));
+
+        // Execução
+        List<String> problems = new QueryPlanVerifier(jdbcTemplate, transactionManager, checks).verify();
+
+        // Verificação
+        Assertions.assertEquals(problems.size(), 1);
+        Assertions.assertTrue(problems.get(0).contains("idx_loan_returned"));
+    }
+}
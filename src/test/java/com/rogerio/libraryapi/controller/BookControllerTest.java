@@ -1,11 +1,19 @@
 package com.rogerio.libraryapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rogerio.libraryapi.cache.BookJsonCache;
 import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.BookImportRejectDTO;
+import com.rogerio.libraryapi.dto.BookImportResultDTO;
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.exceptions.BusinessException;
+import com.rogerio.libraryapi.service.BookImportService;
 import com.rogerio.libraryapi.service.BookService;
+import com.rogerio.libraryapi.service.LoanArchiveService;
 import com.rogerio.libraryapi.service.LoanService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,9 +23,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -25,11 +35,15 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,6 +51,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ActiveProfiles("test")                             // Habilita profile de teste em controllers
 @WebMvcTest(controllers = BookController.class)     // Habilita teste em controllers
 @AutoConfigureMockMvc                               // Configura um objeto
+@Import(BookJsonCache.class)
 public class BookControllerTest {
 
     @MockBean
@@ -45,6 +60,12 @@ public class BookControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private LoanArchiveService loanArchiveService;
+
     // Criar a rota da API
     static String BOOK_API = "/api/books";
 
@@ -52,6 +73,19 @@ public class BookControllerTest {
     @Autowired
     MockMvc mvc;
 
+    @Autowired
+    BookJsonCache bookJsonCache;
+
+    static LocalDateTime UPDATED_AT = LocalDateTime.of(2021, 4, 1, 10, 0);
+
+    // Validadores de GET condicional: livro existente e coleção sem alterações
+    @BeforeEach
+    public void setUp(){
+        bookJsonCache.clear();
+        BDDMockito.given(bookService.getVersion(anyLong())).willReturn(new VersionDTO(1l, 0l, UPDATED_AT));
+        BDDMockito.given(loanService.getVersionByBook(anyLong())).willReturn(new VersionDTO(0l, null, null));
+    }
+
     @Test
     @DisplayName("A - Deve criar um livro com sucesso")
     public void createBookTest() throws Exception {
@@ -136,7 +170,8 @@ public class BookControllerTest {
                 .title(createNewBook().getTitle())
                 .isbn(createNewBook().getIsbn()).build();
 
-        BDDMockito.given(bookService.getById(id)).willReturn(Optional.of(book));
+        BDDMockito.given(bookService.getDTOById(id)).willReturn(Optional.of(new BookDTO(
+                book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn())));
 
         // Execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/" + id))
@@ -158,7 +193,8 @@ public class BookControllerTest {
     @DisplayName("E - Deve retornar resource not found quando o livro consultado não existir")
     public void bookNotFoundTest() throws Exception{
 
-        BDDMockito.given(bookService.getById(anyLong())).willReturn(Optional.empty());
+        BDDMockito.given(bookService.getVersion(anyLong())).willReturn(new VersionDTO(0l, null, null));
+        BDDMockito.given(bookService.getDTOById(anyLong())).willReturn(Optional.empty());
 
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -281,8 +317,9 @@ public class BookControllerTest {
                 .build();
 
         // Criar um Mock de busca com passagem de parametro (pag ini, qtd pag), total pag
-        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+        BookDTO bookDTO = new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+        BDDMockito.given(bookService.findDTO(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookDTO>(Arrays.asList(bookDTO), PageRequest.of(0, 100), 1));
 
         // Cria string parametrizada para receber dadods pela url
         String queryString = String.format("?title=%s&author=%s&page=0&size=100", book.getTitle(), book.getAuthor());
@@ -302,6 +339,150 @@ public class BookControllerTest {
     }
 
 
+    @Test
+    @DisplayName("K - Deve filtrar livros com paginação por cursor, sem total de elementos")
+    public void findBookByCursorTest() throws Exception{
+
+        // Cria dois livros da página
+        BookDTO first = BookDTO.builder().id(1l).author("Rogério").title("Meu sonho").isbn("12345").build();
+        BookDTO second = BookDTO.builder().id(7l).author("Rogério").title("Meu sonho 2").isbn("54321").build();
+
+        // Primeira página: cursor vazio começa do id 0
+        BDDMockito.given(bookService.findDTOAfter(Mockito.any(Book.class), eq(0l), eq(2)))
+                .willReturn(new SliceImpl<BookDTO>(Arrays.asList(first, second), PageRequest.of(0, 2), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=Rogério&cursor=&size=2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        String next = CursorPagination.encode(7l);
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("size").value(2))
+                .andExpect(jsonPath("next").value(next))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        // Página seguinte continua depois do último id retornado
+        BDDMockito.given(bookService.findDTOAfter(Mockito.any(Book.class), eq(7l), anyInt()))
+                .willReturn(new SliceImpl<BookDTO>(Arrays.asList(), PageRequest.of(0, 2), false));
+
+        mvc.perform(MockMvcRequestBuilders
+                        .get(BOOK_API.concat("?cursor=" + next + "&size=2"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(0)))
+                .andExpect(jsonPath("next").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("L - Deve retornar bad request para um cursor inválido")
+    public void invalidCursorTest() throws Exception{
+
+        mvc.perform(MockMvcRequestBuilders
+                        .get(BOOK_API.concat("?cursor=invalido"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid cursor"));
+    }
+
+    @Test
+    @DisplayName("M - Deve importar livros em lote a partir de NDJSON")
+    public void importBooksTest() throws Exception{
+
+        BookImportResultDTO result = BookImportResultDTO.builder()
+                .imported(1)
+                .rejected(1)
+                .rejects(Arrays.asList(new BookImportRejectDTO(2, "12345", "ISBN duplicado no arquivo.")))
+                .build();
+        BDDMockito.given(bookImportService.importBooks(Mockito.any(), Mockito.eq(BookImportService.Format.NDJSON)))
+                .willReturn(result);
+
+        String body = "{\"title\":\"Meu sonho\",\"author\":\"Rogério\",\"isbn\":\"12345\"}\n"
+                + "{\"title\":\"Meu sonho\",\"author\":\"Rogério\",\"isbn\":\"12345\"}\n";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType("application/x-ndjson")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(body);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("rejects[0].line").value(2));
+    }
+
+    @Test
+    @DisplayName("N - Deve responder 304 sem montar o livro quando o ETag não mudou")
+    public void getBookNotModifiedTest() throws Exception{
+
+        // Cenário
+        Long id = 1l;
+        BDDMockito.given(bookService.getDTOById(id)).willReturn(Optional.of(new BookDTO(
+                id, "Meu sonho", "Rogério", "12345")));
+
+        String etag = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Execução e verificação: mesma versão, 304 sem consultar o DTO
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id)).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        Mockito.verify(bookService, Mockito.times(1)).getDTOById(id);
+
+        // Nova versão do livro, nova representação
+        BDDMockito.given(bookService.getVersion(id)).willReturn(new VersionDTO(1l, 1l, UPDATED_AT.plusMinutes(1)));
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id)).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(id));
+    }
+
+    @Test
+    @DisplayName("O - Deve buscar livros sem validadores de GET condicional da tabela inteira")
+    public void findBooksWithoutConditionalTest() throws Exception{
+
+        // Cenário
+        BDDMockito.given(bookService.findDTO(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookDTO>(Arrays.asList(createNewBook()), PageRequest.of(0, 10), 1));
+        String query = "?title=sonho&page=0&size=10";
+
+        // Execução e verificação: a busca sempre responde com os dados
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat(query)).header("If-None-Match", "\"qualquer\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andExpect(jsonPath("content", hasSize(1)));
+        Mockito.verify(bookService, Mockito.never()).getVersion(anyLong());
+    }
+
+    @Test
+    @DisplayName("P - Deve listar os empréstimos do livro incluindo o histórico arquivado quando pedido")
+    public void loansByBookHistoryTest() throws Exception{
+
+        // Cenário
+        LoanDTO archived = new LoanDTO(1l, "Fulano", null, 1l, "Meu sonho", "Rogério", "12345");
+        LoanDTO current = new LoanDTO(7l, "Ciclano", null, 1l, "Meu sonho", "Rogério", "12345");
+        BDDMockito.given(loanArchiveService.getLoanHistoryByBook(eq(1l), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<LoanDTO>(Arrays.asList(archived, current), PageRequest.of(0, 10), 2));
+        BDDMockito.given(loanService.getLoanDTOsByBook(eq(1l), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<LoanDTO>(Arrays.asList(current), PageRequest.of(0, 10), 1));
+
+        // Execução e verificação
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?history=true&page=0&size=10")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("content[0].id").value(1))
+                .andExpect(jsonPath("totalElements").value(2));
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?page=0&size=10")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)));
+    }
+
     private BookDTO createNewBook() {
         return BookDTO.builder().author("Rogério").title("Meu sonho").isbn("12345").build();
     }
@@ -0,0 +1,105 @@
+package com.rogerio.libraryapi.controller;
+
+import com.rogerio.libraryapi.dto.CustomerLoanDTO;
+import com.rogerio.libraryapi.entity.Customer;
+import com.rogerio.libraryapi.service.CustomerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CustomerController.class)
+@AutoConfigureMockMvc
+public class CustomerControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private CustomerService customerService;
+
+    private static String CUSTOMER_API = "/api/customers";
+
+    @Test
+    @DisplayName("A - Deve listar os empréstimos de um cliente")
+    public void loansByCustomerTest() throws Exception {
+
+        // Cenário
+        BDDMockito.given(customerService.getById(1l)).willReturn(Optional.of(createCustomer()));
+        BDDMockito.given(customerService.getLoans(Mockito.eq(1l), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<CustomerLoanDTO>(Arrays.asList(createLoan(5l)), PageRequest.of(0, 10), 1));
+
+        // Execução e verificação
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API + "/1/loans?page=0&size=10")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].id").value(5))
+                .andExpect(jsonPath("content[0].bookId").value(2))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("B - Deve retornar 404 ao listar os empréstimos de um cliente inexistente")
+    public void loansByUnknownCustomerTest() throws Exception {
+
+        // Cenário
+        BDDMockito.given(customerService.getById(Mockito.anyLong())).willReturn(Optional.empty());
+
+        // Execução e verificação
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API + "/1/loans")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        verify(customerService, never()).getLoans(Mockito.anyLong(), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("C - Deve listar os empréstimos de um cliente por cursor")
+    public void loansByCustomerByCursorTest() throws Exception {
+
+        // Cenário
+        BDDMockito.given(customerService.getById(1l)).willReturn(Optional.of(createCustomer()));
+        BDDMockito.given(customerService.getLoansAfter(1l, 0l, 1))
+                .willReturn(new SliceImpl<CustomerLoanDTO>(Arrays.asList(createLoan(5l)), PageRequest.of(0, 1), true));
+
+        // Execução e verificação
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API + "/1/loans?cursor=&size=1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].id").value(5))
+                .andExpect(jsonPath("next").value(CursorPagination.encode(5l)));
+    }
+
+    private Customer createCustomer() {
+        return Customer.builder().id(1l).name("Rogério").email("customer@email.com").build();
+    }
+
+    private CustomerLoanDTO createLoan(Long id) {
+        return CustomerLoanDTO.builder().id(id).bookId(2l).loanDate(LocalDate.now()).returned(false).build();
+    }
+}
@@ -2,7 +2,13 @@ package com.rogerio.libraryapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutBatchDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutItemDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutResultDTO;
 import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.dto.LoanReturnBatchDTO;
+import com.rogerio.libraryapi.dto.LoanReturnItemDTO;
+import com.rogerio.libraryapi.dto.LoanReturnResultDTO;
 import com.rogerio.libraryapi.dto.ReturnedLoanDto;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.entity.Loan;
@@ -82,6 +88,8 @@ public class LoanControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
 
+        // O e-mail informado segue para o empréstimo (identifica o cliente)
+        verify(loanService).save(Mockito.argThat(saved -> "customer@email.com".equals(saved.getCustomerEmail())));
     }
 
     @Test
@@ -192,8 +200,10 @@ public class LoanControllerTest {
         loan.setBook(book);
 
         // Criar um Mock de busca com passagem de parametro (pag ini, qtd pag), total pag
-        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
-                .willReturn(new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+        LoanDTO loanDTO = new LoanDTO(id, loan.getCustomer(), loan.getCustomerEmail(),
+                book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+        BDDMockito.given(loanService.findDTO(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<LoanDTO>(Arrays.asList(loanDTO), PageRequest.of(0, 10), 1));
 
         // Cria string parametrizada para receber dadods pela url
         String queryString = String.format("?isbn=%s&customer=%s&page=0&size=10",
@@ -208,11 +218,91 @@ public class LoanControllerTest {
         mvc.perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].isbn").value(book.getIsbn()))
+                .andExpect(jsonPath("content[0].bookDTO.id").value(book.getId()))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(10))
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("G - Deve filtrar empréstimos sem validadores de GET condicional da tabela inteira")
+    public void filterLoanWithoutConditionalTest() throws Exception{
+
+        // Cenário
+        BDDMockito.given(loanService.findDTO(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<LoanDTO>(Arrays.asList(creteNewLoan()), PageRequest.of(0, 10), 1));
+        String queryString = "?customer=Rogério&page=0&size=10";
+
+        // Execução e verificação: a busca sempre responde com os dados
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat(queryString)).header("If-None-Match", "\"qualquer\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("content", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("H - Deve devolver empréstimos em lote informando o resultado de cada item")
+    public void returnBooksTest() throws Exception{
+
+        // Cenário
+        LoanReturnBatchDTO dto = LoanReturnBatchDTO.builder()
+                .ids(Arrays.asList(1l, 2l))
+                .isbns(Arrays.asList("12345"))
+                .build();
+        LoanReturnResultDTO result = new LoanReturnResultDTO(2, Arrays.asList(
+                new LoanReturnItemDTO(1l, null, LoanReturnItemDTO.Status.RETURNED),
+                new LoanReturnItemDTO(2l, null, LoanReturnItemDTO.Status.ALREADY_RETURNED),
+                new LoanReturnItemDTO(3l, "12345", LoanReturnItemDTO.Status.RETURNED)));
+        BDDMockito.given(loanService.returnLoans(dto.getIds(), dto.getIsbns())).willReturn(result);
+
+        // Execução e verificação
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("returned").value(2))
+                .andExpect(jsonPath("items", hasSize(3)))
+                .andExpect(jsonPath("items[1].status").value("ALREADY_RETURNED"))
+                .andExpect(jsonPath("items[2].isbn").value("12345"));
+    }
+
+    @Test
+    @DisplayName("I - Deve emprestar vários livros numa requisição e responder 409 quando nenhum for emprestado")
+    public void createBatchTest() throws Exception{
+
+        // Cenário
+        LoanCheckoutBatchDTO partial = LoanCheckoutBatchDTO.builder()
+                .customer("Fulano").isbns(Arrays.asList("123", "456")).mode(LoanCheckoutBatchDTO.Mode.PARTIAL).build();
+        LoanCheckoutBatchDTO all = LoanCheckoutBatchDTO.builder()
+                .customer("Ciclano").isbns(Arrays.asList("123", "456")).build();
+        BDDMockito.given(loanService.checkout("Fulano", null, partial.getIsbns(), true))
+                .willReturn(new LoanCheckoutResultDTO(1, Arrays.asList(
+                        new LoanCheckoutItemDTO("123", 7l, LoanCheckoutItemDTO.Status.LOANED),
+                        new LoanCheckoutItemDTO("456", null, LoanCheckoutItemDTO.Status.UNAVAILABLE))));
+        BDDMockito.given(loanService.checkout("Ciclano", null, all.getIsbns(), false))
+                .willReturn(new LoanCheckoutResultDTO(0, Arrays.asList(
+                        new LoanCheckoutItemDTO("123", null, LoanCheckoutItemDTO.Status.SKIPPED),
+                        new LoanCheckoutItemDTO("456", null, LoanCheckoutItemDTO.Status.UNAVAILABLE))));
+
+        // Execução e verificação
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(partial)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("loaned").value(1))
+                .andExpect(jsonPath("items[0].loanId").value(7));
+
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(all)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("items[0].status").value("SKIPPED"));
+    }
+
     private LoanDTO creteNewLoan() {
         return LoanDTO.builder()
                 .isbn("12345")
@@ -0,0 +1,58 @@
+package com.rogerio.libraryapi.mapper;
+
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookMapperTest {
+
+    BookMapper bookMapper = new BookMapper();
+
+    @Test
+    @DisplayName("A - Deve converter um livro em BookDTO")
+    public void toDTOTest(){
+        // Cenário
+        Book book = Book.builder().id(1l).title("Meu sonho").author("Rogério").isbn("12345").build();
+
+        // Execução
+        BookDTO dto = bookMapper.toDTO(book);
+
+        // Verificação
+        assertEquals(1l, dto.getId());
+        assertEquals("Meu sonho", dto.getTitle());
+        assertEquals("Rogério", dto.getAuthor());
+        assertEquals("12345", dto.getIsbn());
+    }
+
+    @Test
+    @DisplayName("B - Deve converter um BookDTO em livro")
+    public void toEntityTest(){
+        // Cenário
+        BookDTO dto = BookDTO.builder().id(1l).title("Meu sonho").author("Rogério").isbn("12345").build();
+
+        // Execução
+        Book book = bookMapper.toEntity(dto);
+
+        // Verificação
+        assertEquals(1l, book.getId());
+        assertEquals("Meu sonho", book.getTitle());
+        assertEquals("Rogério", book.getAuthor());
+        assertEquals("12345", book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("C - Deve retornar nulo ao converter valores nulos")
+    public void nullTest(){
+        // Execução e Verificação
+        assertNull(bookMapper.toDTO(null));
+        assertNull(bookMapper.toEntity(null));
+    }
+}
@@ -0,0 +1,109 @@
+package com.rogerio.libraryapi.metrics;
+
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.exceptions.BusinessException;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.service.BookService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class MetricsAspectTest {
+
+    SimpleMeterRegistry meterRegistry;
+
+    BookService bookService;
+
+    BookRepository bookRepository;
+
+    // Mocks por trás dos proxies, o stub não passa pelo aspecto
+    BookRepository bookRepositoryTarget;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        MetricsAspect aspect = new MetricsAspect(meterRegistry);
+        bookService = proxy(Mockito.mock(BookService.class), BookService.class, aspect);
+        bookRepositoryTarget = Mockito.mock(BookRepository.class);
+        bookRepository = proxy(bookRepositoryTarget, BookRepository.class, aspect);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target, Class<T> type, MetricsAspect aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addInterface(type);
+        factory.addAspect(aspect);
+        return (T) factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("A - Deve medir o tempo dos métodos do serviço")
+    public void serviceTimerTest(){
+        // Execução
+        bookService.getById(1l);
+        bookService.getById(2l);
+
+        // Verificação
+        Timer timer = meterRegistry.get(MetricsAspect.SERVICE_METRIC)
+                .tag("class", "BookService")
+                .tag("method", "getById")
+                .tag("exception", MetricsAspect.NO_EXCEPTION)
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("B - Deve marcar a exceção lançada pelo serviço")
+    public void serviceExceptionTimerTest(){
+        // Cenário
+        BookService target = Mockito.mock(BookService.class);
+        when(target.save(any(Book.class))).thenThrow(new BusinessException("Isbn já cadastrado."));
+        bookService = proxy(target, BookService.class, new MetricsAspect(meterRegistry));
+
+        // Execução
+        Throwable exception = catchThrowable(() -> bookService.save(new Book()));
+
+        // Verificação
+        assertThat(exception).isInstanceOf(BusinessException.class);
+        assertThat(meterRegistry.get(MetricsAspect.SERVICE_METRIC)
+                .tag("method", "save")
+                .tag("exception", "BusinessException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("C - Deve medir os métodos herdados e as consultas do repositório")
+    public void repositoryTimerTest(){
+        // Cenário
+        when(bookRepositoryTarget.findById(1l)).thenReturn(Optional.empty());
+
+        // Execução
+        bookRepository.findById(1l);
+        bookRepository.existsByIsbn("123");
+
+        // Verificação
+        assertThat(meterRegistry.get(MetricsAspect.REPOSITORY_METRIC)
+                .tag("class", "BookRepository")
+                .tag("method", "findById")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(MetricsAspect.REPOSITORY_METRIC)
+                .tag("method", "existsByIsbn")
+                .timer().count()).isEqualTo(1);
+    }
+}
@@ -1,6 +1,9 @@
 package com.rogerio.libraryapi.repository;
 
+import com.rogerio.libraryapi.dto.BookDTO;
+import com.rogerio.libraryapi.dto.VersionDTO;
 import com.rogerio.libraryapi.entity.Book;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,6 +11,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -125,6 +132,127 @@ public class BookRepositoryTest {
         Assertions.assertNull(deletedBook);
     }
 
+    @Test
+    @DisplayName("6 - Deve buscar livros a partir do último id (keyset), ignorando filtros nulos")
+    public void findAfterTest(){
+
+        // Cenário
+        Book first = createNewBook("111");
+        Book second = createNewBook("222");
+        Book other = Book.builder().author("Machado").title("Dom Casmurro").isbn("333").build();
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(other);
+
+        // Execução
+        Slice<Book> firstPage = bookRepository.findAfter(0l, null, "SONHO", null, null, PageRequest.of(0, 1, Sort.by("id")));
+        Slice<Book> nextPage = bookRepository.findAfter(first.getId(), null, "SONHO", null, null, PageRequest.of(0, 1, Sort.by("id")));
+
+        // Verificação
+        Assertions.assertEquals(firstPage.getContent().get(0), first);
+        Assertions.assertTrue(firstPage.hasNext());
+        Assertions.assertEquals(nextPage.getContent().get(0), second);
+        Assertions.assertFalse(nextPage.hasNext());
+    }
+
+    @Test
+    @DisplayName("7 - Deve buscar livros como DTO sem colocar entidades no contexto de persistência")
+    public void findDTOByFilterTest(){
+
+        // Cenário
+        Book first = createNewBook("111");
+        Book other = Book.builder().author("Machado").title("Dom Casmurro").isbn("333").build();
+        entityManager.persist(first);
+        entityManager.persist(other);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Execução
+        Page<BookDTO> result = bookRepository.findDTOByFilter(null, "SONHO", null, null, PageRequest.of(0, 10));
+        Optional<BookDTO> byId = bookRepository.findDTOById(other.getId());
+
+        // Verificação
+        Assertions.assertEquals(result.getTotalElements(), 1);
+        Assertions.assertEquals(result.getContent().get(0),
+                new BookDTO(first.getId(), first.getTitle(), first.getAuthor(), first.getIsbn()));
+        Assertions.assertEquals(byId.get().getTitle(), "Dom Casmurro");
+        Assertions.assertEquals(entityManager.getEntityManager().unwrap(Session.class)
+                .getStatistics().getEntityCount(), 0);
+    }
+
+    @Test
+    @DisplayName("8 - Deve admitir um único empréstimo pelo update condicional e listar só os livros disponíveis")
+    public void checkOutAndAvailableFilterTest(){
+
+        // Cenário
+        Book loaned = createNewBook("111");
+        Book free = createNewBook("222");
+        entityManager.persist(loaned);
+        entityManager.persist(free);
+        entityManager.flush();
+
+        // Execução
+        int first = bookRepository.checkOut(loaned.getId());
+        int second = bookRepository.checkOut(loaned.getId());
+        bookRepository.setCurrentLoan(loaned.getId(), 10l);
+        Page<BookDTO> available = bookRepository.findDTOByAvailableAndFilter(true, null, null, null, null, PageRequest.of(0, 10));
+
+        // Verificação
+        Assertions.assertEquals(first, 1);
+        Assertions.assertEquals(second, 0);
+        Assertions.assertEquals(available.getTotalElements(), 1);
+        Assertions.assertEquals(available.getContent().get(0).getId(), free.getId());
+
+        // Devolução de outro empréstimo não libera o livro; a do empréstimo atual sim
+        Assertions.assertEquals(bookRepository.checkIn(loaned.getId(), 11l), 0);
+        Assertions.assertEquals(bookRepository.checkIn(loaned.getId(), 10l), 1);
+        Assertions.assertEquals(bookRepository.findDTOByAvailableAfter(true, 0l, null, null, null, null,
+                PageRequest.of(0, 10)).getContent().size(), 2);
+    }
+
+    @Test
+    @DisplayName("9 - Deve mudar o validador do livro a cada alteração")
+    public void findVersionByIdTest(){
+
+        // Cenário
+        Book book = entityManager.persist(createNewBook("111"));
+        entityManager.flush();
+        VersionDTO created = bookRepository.findVersionById(book.getId());
+
+        // Execução
+        book.setTitle("Outro título");
+        entityManager.flush();
+        VersionDTO updated = bookRepository.findVersionById(book.getId());
+
+        // Verificação
+        Assertions.assertEquals(created.getCount(), 1);
+        Assertions.assertNotNull(created.getUpdatedAt());
+        Assertions.assertEquals(updated.getVersion(), created.getVersion() + 1);
+        Assertions.assertEquals(bookRepository.findVersionById(-1l).getCount(), 0);
+    }
+
+    @Test
+    @DisplayName("10 - Deve filtrar livros pelo id e por trecho do isbn")
+    public void findDTOByIdAndIsbnFilterTest(){
+
+        // Cenário
+        Book first = entityManager.persist(createNewBook("123"));
+        Book other = entityManager.persist(createNewBook("456"));
+        entityManager.flush();
+
+        // Execução
+        Page<BookDTO> byIsbn = bookRepository.findDTOByFilter(null, null, null, "23", PageRequest.of(0, 10));
+        Page<BookDTO> byId = bookRepository.findDTOByFilter(other.getId(), "sonho", null, null, PageRequest.of(0, 10));
+        Page<BookDTO> byIdAndIsbn = bookRepository.findDTOByFilter(other.getId(), null, null, "23", PageRequest.of(0, 10));
+
+        // Verificação
+        Assertions.assertEquals(byIsbn.getContent().get(0).getId(), first.getId());
+        Assertions.assertEquals(byIsbn.getTotalElements(), 1);
+        Assertions.assertEquals(byId.getContent().get(0).getId(), other.getId());
+        Assertions.assertEquals(byId.getTotalElements(), 1);
+        Assertions.assertEquals(byIdAndIsbn.getTotalElements(), 0);
+    }
+
     private Book createNewBook(String isbn) {
         return Book.builder().author("Rogério").title("Meu sonho").isbn(isbn).build();
     }
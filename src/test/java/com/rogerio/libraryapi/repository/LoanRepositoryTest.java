@@ -1,8 +1,15 @@
 package com.rogerio.libraryapi.repository;
 
+import com.rogerio.libraryapi.dto.CustomerLoanDTO;
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.dto.OverdueLoanDTO;
 import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Customer;
 import com.rogerio.libraryapi.entity.Loan;
 import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,27 +17,43 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 // *** TESTES DE INTEGRAÇÃO ***
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({LoanSearchRepository.class, StatementCounter.class})
 public class LoanRepositoryTest {
 
+    @Autowired
+    StatementCounter statementCounter;
+
     @Autowired
     TestEntityManager entityManager;
 
     @Autowired
     LoanRepository loanRepository;
 
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanSearchRepository loanSearchRepository;
+
     @Test
     @DisplayName("A - Deve verificar se existe empréstimo não devolvido para o livro")
     public void existsByBookAndNotReturnedTest(){
@@ -48,18 +71,22 @@ public class LoanRepositoryTest {
     }
 
     @Test
-    @DisplayName("B - Deve buscar empréstimo pelo ISBN do livro ou customer")
-    public void findByBookIsbnOrCustomer(){
+    @DisplayName("B - Deve buscar empréstimo pelo ISBN do livro e customer")
+    public void findByBookIsbnAndCustomer(){
         // Cenário, persistir dados
         Loan loan = createAndPersistLoan();
+        entityManager.flush();
 
-        Page<Loan> result = loanRepository.findByBookIsbnOrCustomer(
-                "1234",
-                "Rogério",
+        Page<Long> result = loanSearchRepository.findIds(
+                LoanFilterDTO.builder().isbn("1234").customer("Fulano").build(),
+                PageRequest.of(0, 10));
+        Page<Long> otherCustomer = loanSearchRepository.findIds(
+                LoanFilterDTO.builder().isbn("1234").customer("Rogério").build(),
                 PageRequest.of(0, 10));
 
-        // Verificação
-        Assertions.assertTrue(result.getContent().contains(loan));
+        // Verificação: os filtros preenchidos se combinam com AND
+        Assertions.assertTrue(result.getContent().contains(loan.getId()));
+        Assertions.assertTrue(otherCustomer.isEmpty());
         Assertions.assertEquals(result.getContent().size(), 1);
         Assertions.assertEquals(result.getPageable().getPageSize(), 10);
         Assertions.assertEquals(result.getPageable().getPageNumber(), 0);
@@ -91,6 +118,261 @@ public class LoanRepositoryTest {
     }
 
 
+    @Test
+    @DisplayName("E - Deve buscar empréstimos do livro a partir do último id (keyset)")
+    public void findByBookAndIdGreaterThan(){
+        Loan first = createAndPersistLoan();
+        Book book = first.getBook();
+        Loan second = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build();
+        entityManager.persist(second);
+        Loan third = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build();
+        entityManager.persist(third);
+
+        Slice<Loan> firstPage = loanRepository.findByBookAndIdGreaterThan(book, 0l, PageRequest.of(0, 2, Sort.by("id")));
+        Slice<Loan> lastPage = loanRepository.findByBookAndIdGreaterThan(book, second.getId(), PageRequest.of(0, 2, Sort.by("id")));
+
+        Assertions.assertEquals(firstPage.getContent().size(), 2);
+        Assertions.assertTrue(firstPage.hasNext());
+        Assertions.assertEquals(lastPage.getContent().size(), 1);
+        Assertions.assertTrue(lastPage.getContent().contains(third));
+        Assertions.assertFalse(lastPage.hasNext());
+    }
+
+    @Test
+    @DisplayName("F - Deve buscar empréstimo pelo ISBN do livro a partir do último id (keyset)")
+    public void findByBookIsbnAfter(){
+        Loan loan = createAndPersistLoan();
+        entityManager.flush();
+
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("1234").build();
+        Slice<Long> result = loanSearchRepository.findIdsAfter(filter, 0l, 10);
+        Slice<Long> after = loanSearchRepository.findIdsAfter(filter, loan.getId(), 10);
+
+        Assertions.assertTrue(result.getContent().contains(loan.getId()));
+        Assertions.assertFalse(result.hasNext());
+        Assertions.assertTrue(after.getContent().isEmpty());
+    }
+
+    @Test
+    @DisplayName("G - Deve listar os ids dos livros com empréstimo não devolvido")
+    public void findNotReturnedBookIds(){
+        Loan open = createAndPersistLoan();
+
+        Book returnedBook = createNewBook("4321");
+        entityManager.persist(returnedBook);
+        entityManager.persist(Loan.builder().book(returnedBook).customer("Fulano")
+                .loanDate(LocalDate.now()).returned(true).build());
+
+        List<Long> result = loanRepository.findNotReturnedBookIds();
+
+        Assertions.assertEquals(result, Arrays.asList(open.getBook().getId()));
+    }
+
+    @Test
+    @DisplayName("H - Não deve permitir dois empréstimos abertos para o mesmo livro no banco")
+    public void uniqueOpenLoanPerBook(){
+        Book book = createNewBook("1234");
+        entityManager.persist(book);
+        loanRepository.saveAndFlush(Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now()).openBookId(book.getId()).build());
+
+        Loan duplicated = Loan.builder().book(book).customer("Ciclano")
+                .loanDate(LocalDate.now()).openBookId(book.getId()).build();
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> loanRepository.saveAndFlush(duplicated));
+    }
+
+    @Test
+    @DisplayName("I - Deve listar empréstimos como DTO sem carregar entidades e com no máximo uma contagem")
+    public void findDTOStatementCount(){
+        // Cenário: empréstimos de livros diferentes, que antes geravam um select por livro
+        for (int i = 0; i < 5; i++) {
+            Book book = createNewBook("isbn-" + i);
+            entityManager.persist(book);
+            entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                    .customerEmail("fulano@email.com").loanDate(LocalDate.now()).returned(true).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statementCounter.reset();
+
+        // Execução
+        Page<LoanDTO> result = loanSearchRepository.findDTO(
+                LoanFilterDTO.builder().customer("Fulano").build(), PageRequest.of(0, 3, Sort.by("id")));
+
+        // Verificação
+        Assertions.assertEquals(result.getContent().size(), 3);
+        Assertions.assertEquals(result.getTotalElements(), 5);
+        Assertions.assertEquals(result.getContent().get(0).getBookDTO().getIsbn(), "isbn-0");
+        Assertions.assertEquals(result.getContent().get(0).getIsbn(), "isbn-0");
+        Assertions.assertEquals(result.getContent().get(0).getCustomer_email(), "fulano@email.com");
+        // Contados no DataSource: a página e uma contagem, nenhum select por livro nem entidade carregada
+        Assertions.assertEquals(statementCounter.count(), 2);
+        Assertions.assertEquals(statistics.getEntityLoadCount(), 0);
+
+        // Última página cabe inteira: sem contagem
+        statementCounter.reset();
+        Long bookId = result.getContent().get(0).getBookDTO().getId();
+        Page<LoanDTO> byBook = loanRepository.findDTOByBookId(bookId, PageRequest.of(0, 10));
+        Assertions.assertEquals(byBook.getTotalElements(), 1);
+        Assertions.assertEquals(statementCounter.count(), 1);
+    }
+
+    @Test
+    @DisplayName("J - Deve devolver em lote com um update nos empréstimos e outro nos livros")
+    public void returnInBatchTest(){
+
+        // Cenário: dois empréstimos abertos com o livro marcado como emprestado
+        Loan[] loans = new Loan[2];
+        for (int i = 0; i < loans.length; i++) {
+            Book book = entityManager.persist(createNewBook("batch-" + i));
+            loans[i] = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                    .loanDate(LocalDate.now()).returned(false).openBookId(book.getId()).build());
+            bookRepository.checkOut(book.getId());
+            bookRepository.setCurrentLoan(book.getId(), loans[i].getId());
+        }
+        List<Long> ids = Arrays.asList(loans[0].getId(), loans[1].getId());
+
+        // Execução
+        List<Object[]> locked = loanRepository.lockForReturn(Arrays.asList(ids.get(1), ids.get(0)));
+        int returnedLoans = loanRepository.markReturned(ids);
+        int returnedBooks = bookRepository.checkInAll(ids);
+
+        // Verificação
+        Assertions.assertEquals(locked.size(), 2);
+        Assertions.assertEquals(((Number) locked.get(0)[0]).longValue(), ids.get(0));
+        Assertions.assertEquals(returnedLoans, 2);
+        Assertions.assertEquals(returnedBooks, 2);
+        Loan returned = entityManager.find(Loan.class, ids.get(0));
+        Assertions.assertTrue(returned.getReturned());
+        Assertions.assertNull(returned.getOpenBookId());
+        Book book = entityManager.find(Book.class, returned.getBook().getId());
+        Assertions.assertTrue(book.getAvailable());
+        Assertions.assertNull(book.getCurrentLoanId());
+    }
+
+    @Test
+    @DisplayName("K - Deve filtrar empréstimos por devolução, período e início do nome do cliente")
+    public void findByDynamicFiltersTest(){
+
+        // Cenário
+        Book book = entityManager.persist(createNewBook("filters"));
+        Loan open = entityManager.persist(Loan.builder().book(book).customer("Ana_Maria")
+                .loanDate(LocalDate.now().minusDays(2)).build());
+        Loan returned = entityManager.persist(Loan.builder().book(book).customer("Ana Paula")
+                .loanDate(LocalDate.now().minusDays(10)).returned(true).build());
+        Loan other = entityManager.persist(Loan.builder().book(book).customer("Bruno")
+                .loanDate(LocalDate.now().minusDays(2)).returned(true).build());
+        entityManager.flush();
+
+        // Execução e verificação
+        Assertions.assertEquals(ids(LoanFilterDTO.builder().returned(false).build()), Arrays.asList(open.getId()));
+        Assertions.assertEquals(ids(LoanFilterDTO.builder().returned(true).build()),
+                Arrays.asList(returned.getId(), other.getId()));
+        Assertions.assertEquals(ids(LoanFilterDTO.builder().customerPrefix("Ana").build()),
+                Arrays.asList(open.getId(), returned.getId()));
+        // "_" é literal no prefixo, não curinga
+        Assertions.assertEquals(ids(LoanFilterDTO.builder().customerPrefix("Ana_").build()), Arrays.asList(open.getId()));
+        Assertions.assertEquals(ids(LoanFilterDTO.builder()
+                        .loanDateFrom(LocalDate.now().minusDays(3)).loanDateTo(LocalDate.now()).build()),
+                Arrays.asList(open.getId(), other.getId()));
+        Assertions.assertEquals(ids(LoanFilterDTO.builder()
+                        .customerPrefix("Ana").returned(true).loanDateTo(LocalDate.now().minusDays(5)).build()),
+                Arrays.asList(returned.getId()));
+        Assertions.assertEquals(ids(new LoanFilterDTO()).size(), 3);
+        // Ordenação pedida, com o id desempatando
+        Assertions.assertEquals(loanSearchRepository.findIds(new LoanFilterDTO(),
+                PageRequest.of(0, 10, Sort.by("loanDate"))).getContent(),
+                Arrays.asList(returned.getId(), open.getId(), other.getId()));
+    }
+
+    @Test
+    @DisplayName("L - Deve listar os empréstimos de um cliente em ordem de id, com paginação e cursor")
+    public void findDTOByCustomerIdTest(){
+        // Cenário: dois empréstimos do cliente e um de outro cliente
+        Customer fulano = entityManager.persist(Customer.builder().name("Fulano").email("fulano@email.com").build());
+        Customer ciclano = entityManager.persist(Customer.builder().name("Ciclano").email("ciclano@email.com").build());
+        Book book = entityManager.persist(createNewBook("customer"));
+        Loan first = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                .customerId(fulano.getId()).loanDate(LocalDate.now()).returned(true).build());
+        entityManager.persist(Loan.builder().book(book).customer("Ciclano")
+                .customerId(ciclano.getId()).loanDate(LocalDate.now()).returned(true).build());
+        Loan second = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                .customerId(fulano.getId()).loanDate(LocalDate.now()).returned(true).build());
+        entityManager.flush();
+
+        // Execução
+        Page<CustomerLoanDTO> page = loanRepository.findDTOByCustomerId(fulano.getId(), PageRequest.of(0, 1, Sort.by("id")));
+        Slice<CustomerLoanDTO> after = loanRepository.findDTOByCustomerIdAfter(fulano.getId(), first.getId(),
+                PageRequest.of(0, 10, Sort.by("id")));
+
+        // Verificação
+        Assertions.assertEquals(page.getTotalElements(), 2);
+        Assertions.assertEquals(page.getContent().get(0).getId(), first.getId());
+        Assertions.assertEquals(page.getContent().get(0).getBookId(), book.getId());
+        Assertions.assertEquals(after.getContent().size(), 1);
+        Assertions.assertEquals(after.getContent().get(0).getId(), second.getId());
+        Assertions.assertTrue(after.getContent().get(0).getReturned());
+        Assertions.assertFalse(after.hasNext());
+    }
+
+    @Test
+    @DisplayName("M - Deve listar os atrasados em ordem de cliente e id, continuando dentro do último cliente")
+    public void findOverdueByCustomerAfterTest(){
+        // Cenário: atrasados de dois clientes, um em dia e um devolvido
+        Customer fulano = entityManager.persist(Customer.builder().name("Fulano").email("fulano@email.com").build());
+        Customer ciclano = entityManager.persist(Customer.builder().name("Ciclano").email("ciclano@email.com").build());
+        Book book = entityManager.persist(createNewBook("overdue"));
+        LocalDate late = LocalDate.now().minusDays(10);
+        Loan ciclanoLate = entityManager.persist(Loan.builder().book(book).customerId(ciclano.getId())
+                .loanDate(late).returned(false).build());
+        Loan fulanoFirst = entityManager.persist(Loan.builder().book(book).customerId(fulano.getId())
+                .loanDate(late).build());
+        entityManager.persist(Loan.builder().book(book).customerId(fulano.getId())
+                .loanDate(LocalDate.now()).returned(false).build());
+        entityManager.persist(Loan.builder().book(book).customerId(fulano.getId())
+                .loanDate(late).returned(true).build());
+        Loan fulanoSecond = entityManager.persist(Loan.builder().book(book).customerId(fulano.getId())
+                .loanDate(late).returned(false).build());
+        entityManager.flush();
+        LocalDate dueBefore = LocalDate.now().minusDays(4);
+
+        // Execução
+        List<OverdueLoanDTO> all = loanRepository.findOverdueByCustomerAfter(dueBefore, 0l, Long.MAX_VALUE, PageRequest.of(0, 10));
+        List<OverdueLoanDTO> after = loanRepository.findOverdueByCustomerAfter(dueBefore, fulano.getId(), fulanoFirst.getId(),
+                PageRequest.of(0, 10));
+
+        // Verificação
+        Assertions.assertEquals(all.stream().map(OverdueLoanDTO::getId).collect(Collectors.toList()),
+                Arrays.asList(fulanoFirst.getId(), fulanoSecond.getId(), ciclanoLate.getId()));
+        Assertions.assertEquals(all.get(0).getEmail(), "fulano@email.com");
+        Assertions.assertEquals(all.get(0).getTitle(), "Meu sonho");
+        Assertions.assertEquals(after.stream().map(OverdueLoanDTO::getId).collect(Collectors.toList()),
+                Arrays.asList(fulanoSecond.getId(), ciclanoLate.getId()));
+    }
+
+    @Test
+    @DisplayName("N - Deve listar com livro nulo o empréstimo sem livro")
+    public void findDTOWithoutBookTest(){
+        // Cenário
+        entityManager.persist(Loan.builder().customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        entityManager.flush();
+
+        // Execução
+        Page<LoanDTO> result = loanSearchRepository.findDTO(new LoanFilterDTO(), PageRequest.of(0, 10));
+
+        // Verificação
+        Assertions.assertEquals(result.getContent().size(), 1);
+        Assertions.assertNull(result.getContent().get(0).getBookDTO().getId());
+    }
+
+    private List<Long> ids(LoanFilterDTO filter) {
+        return loanSearchRepository.findIds(filter, PageRequest.of(0, 10)).getContent();
+    }
+
     private Book createNewBook(String isbn) {
         return Book.builder().author("Rogério").title("Meu sonho").isbn(isbn).build();
     }
@@ -0,0 +1,53 @@
+package com.rogerio.libraryapi.repository;
+
+import com.rogerio.libraryapi.entity.MailDeadLetter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// *** TESTES DE INTEGRAÇÃO ***
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class MailDeadLetterRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    MailDeadLetterRepository deadLetterRepository;
+
+    @Test
+    @DisplayName("1 - Deve guardar o resumo de atrasados inteiro, mesmo acima de 2000 caracteres")
+    public void saveLongDigestTest(){
+
+        // Cenário: resumo com 50 livros
+        String message = IntStream.rangeClosed(1, 50)
+                .mapToObj(i -> "- Livro com um título bem comprido " + i + " (ISBN 978-85-0000-" + i + "), emprestado em 01/01/2021")
+                .collect(Collectors.joining("\n"));
+
+        // Execução
+        MailDeadLetter saved = deadLetterRepository.saveAndFlush(MailDeadLetter.builder()
+                .recipients("fulano@email.com")
+                .message(message)
+                .attempts(5)
+                .createdAt(LocalDateTime.now())
+                .build());
+        entityManager.clear();
+
+        // Verificação
+        Assertions.assertTrue(message.length() > 2000);
+        Assertions.assertEquals(deadLetterRepository.findById(saved.getId()).get().getMessage(), message);
+    }
+}
@@ -0,0 +1,168 @@
+package com.rogerio.libraryapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rogerio.libraryapi.cache.BookIsbnCache;
+import com.rogerio.libraryapi.dto.BookImportResultDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.search.BookSearchIndex;
+import com.rogerio.libraryapi.service.imp.BookImportServiceImp;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookImportServiceTest {
+
+    BookImportService bookImportService;
+
+    BookIsbnCache bookIsbnCache;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp(){
+        this.bookIsbnCache = new BookIsbnCache(100, 60);
+        this.bookImportService = new BookImportServiceImp(
+                bookRepository,
+                new BookSearchIndex(bookRepository),
+                bookIsbnCache,
+                transactionManager,
+                new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("A - Deve importar livros de um NDJSON rejeitando linhas inválidas e duplicadas")
+    public void importNdjsonTest() throws Exception {
+
+        // Cenário
+        String ndjson = "{\"title\":\"Meu sonho\",\"author\":\"Rogério\",\"isbn\":\"111\"}\n"
+                + "{\"title\":\"Outro\",\"author\":\"Rogério\",\"isbn\":\"111\"}\n"
+                + "não é json\n"
+                + "\n"
+                + "{\"title\":\"Sem autor\",\"isbn\":\"222\"}\n"
+                + "{\"title\":\"Já existe\",\"author\":\"Larissa\",\"isbn\":\"333\"}\n"
+                + "{\"title\":\"Minha namorada\",\"author\":\"Larissa\",\"isbn\":\"444\"}\n";
+
+        Mockito.when(bookRepository.findExistingIsbns(Mockito.anyCollection()))
+                .thenReturn(Collections.singleton("333"));
+        // Como o JPA, o saveAll atribui os ids aos livros gravados
+        Mockito.when(bookRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            long id = 1;
+            for (Book book : books) {
+                book.setId(id++);
+            }
+            return books;
+        });
+
+        // Execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(ndjson), BookImportService.Format.NDJSON);
+
+        // Verificação
+        Assertions.assertEquals(result.getImported(), 2);
+        Assertions.assertEquals(result.getRejected(), 4);
+        Assertions.assertEquals(result.getRejects().get(0).getLine(), 2);
+        Assertions.assertEquals(result.getRejects().get(1).getLine(), 3);
+        Assertions.assertEquals(result.getRejects().get(2).getLine(), 5);
+        Assertions.assertEquals(result.getRejects().get(3).getIsbn(), "333");
+
+        ArgumentCaptor<List<Book>> saved = ArgumentCaptor.forClass(List.class);
+        verify(bookRepository, times(1)).saveAll(saved.capture());
+        Assertions.assertEquals(saved.getValue().size(), 2);
+
+        // Os livros importados passam a constar no cache de ISBN
+        Assertions.assertEquals(bookIsbnCache.exists("444"), Boolean.TRUE);
+    }
+
+    @Test
+    @DisplayName("B - Deve importar livros de um CSV com cabeçalho em lotes")
+    public void importCsvTest() throws Exception {
+
+        // Cenário: colunas em outra ordem e campo entre aspas com vírgula
+        StringBuilder csv = new StringBuilder("isbn,author,title\n");
+        for (int i = 0; i < 1200; i++) {
+            csv.append(i).append(",Rogério,\"Meu sonho, volume ").append(i).append("\"\n");
+        }
+        Mockito.when(bookRepository.findExistingIsbns(Mockito.anyCollection())).thenReturn(Collections.emptySet());
+        Mockito.when(bookRepository.findByIsbn(Mockito.anyString())).thenReturn(Optional.empty());
+
+        // Execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(csv.toString()), BookImportService.Format.CSV);
+
+        // Verificação: 1200 linhas com lote padrão de 500 = 3 lotes
+        Assertions.assertEquals(result.getImported(), 1200);
+        Assertions.assertEquals(result.getRejected(), 0);
+        verify(bookRepository, times(3)).findExistingIsbns(Mockito.anyCollection());
+
+        ArgumentCaptor<List<Book>> saved = ArgumentCaptor.forClass(List.class);
+        verify(bookRepository, times(3)).saveAll(saved.capture());
+        Book first = saved.getAllValues().get(0).get(0);
+        Assertions.assertEquals(first.getIsbn(), "0");
+        Assertions.assertEquals(first.getTitle(), "Meu sonho, volume 0");
+        Assertions.assertEquals(first.getAuthor(), "Rogério");
+    }
+
+    @Test
+    @DisplayName("C - Deve rejeitar ISBN repetido em outro lote pela consulta de existência no banco")
+    public void importDuplicatedAcrossBatchesTest() throws Exception {
+
+        // Cenário: lotes de 2 linhas; o banco passa a conter os ISBNs de cada lote gravado
+        ReflectionTestUtils.setField(bookImportService, "batchSize", 2);
+        Set<String> stored = new HashSet<>();
+        Mockito.when(bookRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> stored.add(book.getIsbn()));
+            return books;
+        });
+        Mockito.when(bookRepository.findExistingIsbns(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<String> isbns = invocation.getArgument(0);
+            return isbns.stream().filter(stored::contains).collect(Collectors.toSet());
+        });
+        String ndjson = "{\"title\":\"Meu sonho\",\"author\":\"Rogério\",\"isbn\":\"111\"}\n"
+                + "{\"title\":\"Minha namorada\",\"author\":\"Larissa\",\"isbn\":\"222\"}\n"
+                + "{\"title\":\"Outro\",\"author\":\"Rogério\",\"isbn\":\"111\"}\n";
+
+        // Execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(ndjson), BookImportService.Format.NDJSON);
+
+        // Verificação
+        Assertions.assertEquals(result.getImported(), 2);
+        Assertions.assertEquals(result.getRejected(), 1);
+        Assertions.assertEquals(result.getRejects().get(0).getLine(), 3);
+        Assertions.assertEquals(result.getRejects().get(0).getReason(), "ISBN já cadastrado.");
+        verify(bookRepository, times(2)).findExistingIsbns(Mockito.anyCollection());
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,8 +1,13 @@
 package com.rogerio.libraryapi.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rogerio.libraryapi.cache.BookIsbnCache;
+import com.rogerio.libraryapi.cache.BookJsonCache;
+import com.rogerio.libraryapi.dto.BookDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.exceptions.BusinessException;
 import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.search.BookSearchIndex;
 import com.rogerio.libraryapi.service.imp.BookServiceImp;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,9 +20,13 @@ import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +42,12 @@ public class BookServiceTest {
 
     BookService bookService;
 
+    BookSearchIndex bookSearchIndex;
+
+    BookIsbnCache bookIsbnCache;
+
+    BookJsonCache bookJsonCache;
+
     // Criar a rota da API
     static String BOOK_API = "/api/books";
 
@@ -43,7 +58,10 @@ public class BookServiceTest {
     // Estabelecer uma conexão com o banco de dados
     @BeforeEach
     public void setUp(){
-        this.bookService = new BookServiceImp(bookRepository);
+        this.bookSearchIndex = new BookSearchIndex(bookRepository);
+        this.bookIsbnCache = new BookIsbnCache(100, 60);
+        this.bookJsonCache = new BookJsonCache(new ObjectMapper(), 1024);
+        this.bookService = new BookServiceImp(bookRepository, bookSearchIndex, bookIsbnCache, bookJsonCache);
     }
 
 
@@ -237,6 +255,244 @@ public class BookServiceTest {
         verify(bookRepository, times(1)).findByIsbn(isbn);
     }
 
+    @Test
+    @DisplayName("J - Deve filtrar livros pelo índice de busca ordenando por relevância")
+    public void findBookByIndexTest(){
+
+        // Cenário
+        Book exact = Book.builder().id(1l).author("José de Alencar").title("Iracema").isbn("111").build();
+        Book prefix = Book.builder().id(2l).author("José Saramago").title("Iracemas e outros").isbn("222").build();
+        Book other = Book.builder().id(3l).author("Machado de Assis").title("Dom Casmurro").isbn("333").build();
+        List<Book> books = Arrays.asList(exact, prefix, other);
+
+        Mockito.when(bookRepository.findAll(Mockito.any(Pageable.class)))
+                .thenReturn(new PageImpl<Book>(books));
+        Mockito.when(bookRepository.findAllById(Mockito.anyIterable()))
+                .thenReturn(Arrays.asList(prefix, exact));
+        bookSearchIndex.rebuild();
+
+        // Execução: sem acentos e com caixa diferente
+        Book filter = Book.builder().title("IRACEMA").author("jose").build();
+        Page<Book> result = bookService.find(filter, PageRequest.of(0, 10));
+
+        // Verificação
+        Assertions.assertEquals(result.getTotalElements(), 2);
+        Assertions.assertEquals(result.getContent(), Arrays.asList(exact, prefix));
+        verify(bookRepository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("K - Deve manter o índice de busca atualizado ao salvar, atualizar e deletar")
+    public void indexUpdatedOnWritesTest(){
+
+        // Cenário
+        Mockito.when(bookRepository.findAll(Mockito.any(Pageable.class))).thenReturn(Page.empty());
+        bookSearchIndex.rebuild();
+
+        Book book = createValidBook();
+        Mockito.when(bookRepository.existsByIsbn(Mockito.any())).thenReturn(false);
+        Mockito.when(bookRepository.save(book)).thenReturn(Book.builder()
+                .id(1l).author("Larissa").title("Minha namorada").isbn("54321").build());
+
+        // Execução e verificação
+        Book savedBook = bookService.save(book);
+        assertEquals(bookSearchIndex.search(Book.builder().title("namo").build()).get(), Arrays.asList(1l));
+
+        savedBook.setTitle("Outro título");
+        Mockito.when(bookRepository.save(savedBook)).thenReturn(savedBook);
+        bookService.update(savedBook);
+        assertTrue(bookSearchIndex.search(Book.builder().title("namo").build()).get().isEmpty());
+        assertEquals(bookSearchIndex.search(Book.builder().title("titulo").build()).get(), Arrays.asList(1l));
+
+        bookService.delete(savedBook);
+        assertEquals(bookSearchIndex.size(), 0);
+    }
+
+    @Test
+    @DisplayName("L - Deve obter um livro por ISBN do cache a partir da segunda consulta")
+    public void getBookByIsbnCachedTest(){
+
+        // Cenário
+        String isbn = "12345";
+        Mockito.when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.of(Book.builder()
+                .id(1l)
+                .isbn(isbn)
+                .build()));
+        Mockito.when(bookRepository.findById(1l)).thenReturn(Optional.of(Book.builder()
+                .id(1l)
+                .isbn(isbn)
+                .available(false)
+                .build()));
+
+        // Execução
+        bookService.getBookByIsbn(isbn);
+        Optional<Book> book = bookService.getBookByIsbn(isbn);
+
+        // Verificação: o cache guarda só o id, o livro vem atual pela chave primária
+        assertTrue(book.isPresent());
+        assertFalse(book.get().getAvailable());
+        verify(bookRepository, times(1)).findByIsbn(isbn);
+        verify(bookRepository, times(1)).findById(1l);
+        assertEquals(bookIsbnCache.getStats().getHits(), 1);
+        assertEquals(bookIsbnCache.getStats().getMisses(), 1);
+    }
+
+    @Test
+    @DisplayName("M - Deve guardar no cache os ISBNs inexistentes")
+    public void negativeIsbnCacheTest(){
+
+        // Cenário
+        String isbn = "99999";
+        Mockito.when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.empty());
+
+        // Execução
+        bookService.getBookByIsbn(isbn);
+        Optional<Book> book = bookService.getBookByIsbn(isbn);
+        Book saving = Book.builder().author("Larissa").title("Minha namorada").isbn(isbn).build();
+        Mockito.when(bookRepository.save(saving)).thenReturn(Book.builder().id(1l).isbn(isbn).build());
+        Mockito.when(bookRepository.findById(1l)).thenReturn(Optional.of(Book.builder().id(1l).isbn(isbn).build()));
+        bookService.save(saving);
+
+        // Verificação: nem a segunda busca nem a checagem de duplicidade vão ao banco
+        assertFalse(book.isPresent());
+        verify(bookRepository, times(1)).findByIsbn(isbn);
+        verify(bookRepository, Mockito.never()).existsByIsbn(isbn);
+        assertEquals(bookIsbnCache.getStats().getNegativeHits(), 2);
+
+        // O livro cadastrado substitui o cache negativo
+        assertTrue(bookService.getBookByIsbn(isbn).isPresent());
+    }
+
+    @Test
+    @DisplayName("N - Deve invalidar o cache de ISBN ao atualizar e deletar um livro")
+    public void invalidateIsbnCacheTest(){
+
+        // Cenário
+        Book book = Book.builder().id(1l).author("Larissa").title("Minha namorada").isbn("54321").build();
+        Mockito.when(bookRepository.findByIsbn("54321")).thenReturn(Optional.of(book));
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+        bookService.getBookByIsbn("54321");
+
+        // Execução
+        bookService.update(book);
+        bookService.getBookByIsbn("54321");
+        bookService.delete(book);
+        bookService.getBookByIsbn("54321");
+
+        // Verificação
+        verify(bookRepository, times(3)).findByIsbn("54321");
+    }
+
+    @Test
+    @DisplayName("O - Deve servir o JSON do livro do cache pela versão e descartá-lo ao atualizar")
+    public void bookJsonCacheTest(){
+
+        // Cenário
+        Book book = createValidBook();
+        book.setId(1l);
+        BookDTO dto = new BookDTO(1l, book.getTitle(), book.getAuthor(), book.getIsbn());
+        Mockito.when(bookRepository.findDTOById(1l)).thenReturn(Optional.of(dto));
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+
+        // Execução
+        byte[] first = bookJsonCache.get(1l, 0l, bookService::getDTOById).get();
+        byte[] second = bookJsonCache.get(1l, 0l, bookService::getDTOById).get();
+        bookService.update(book);
+
+        // Verificação: segunda leitura sem banco, atualização libera a entrada
+        assertSame(first, second);
+        assertTrue(new String(first, StandardCharsets.UTF_8).contains("\"title\":\"Minha namorada\""));
+        verify(bookRepository, times(1)).findDTOById(1l);
+        assertEquals(bookJsonCache.getStats().getSize(), 0);
+        assertEquals(bookJsonCache.getStats().getBytes(), 0);
+    }
+
+    @Test
+    @DisplayName("P - Deve respeitar o limite de bytes do cache de JSON descartando os menos usados")
+    public void bookJsonCacheEvictionTest(){
+
+        // Cenário: cada entrada custa o JSON mais o overhead, o limite comporta poucas
+        for (long id = 1; id <= 20; id++) {
+            Mockito.when(bookRepository.findDTOById(id))
+                    .thenReturn(Optional.of(new BookDTO(id, "Título " + id, "Autor", "isbn-" + id)));
+        }
+
+        // Execução
+        for (long id = 1; id <= 20; id++) {
+            bookJsonCache.get(id, 0l, bookService::getDTOById);
+            // O livro 1 continua sendo lido e não deve ser descartado
+            bookJsonCache.get(1l, 0l, bookService::getDTOById);
+        }
+
+        // Verificação
+        BookJsonCache.Stats stats = bookJsonCache.getStats();
+        assertTrue(stats.getBytes() <= 1024);
+        assertTrue(stats.getEvictions() > 0);
+        bookJsonCache.get(1l, 0l, bookService::getDTOById);
+        verify(bookRepository, times(1)).findDTOById(1l);
+        // Outra versão não aproveita o JSON antigo
+        bookJsonCache.get(1l, 1l, bookService::getDTOById);
+        verify(bookRepository, times(2)).findDTOById(1l);
+    }
+
+    @Test
+    @DisplayName("Q - Deve buscar pelo índice com isbn por trecho, título por prefixo de palavra e id exato")
+    public void findBookByIndexCriteriaTest(){
+
+        // Cenário
+        Book first = Book.builder().id(1l).author("José de Alencar").title("Iracema").isbn("978-123").build();
+        Book second = Book.builder().id(2l).author("José de Alencar").title("O Guarani").isbn("978-456").build();
+        Mockito.when(bookRepository.findAll(Mockito.any(Pageable.class)))
+                .thenReturn(new PageImpl<Book>(Arrays.asList(first, second)));
+        bookSearchIndex.rebuild();
+
+        // Execução e verificação: isbn mantém o "contém" das consultas no banco
+        assertEquals(bookSearchIndex.search(Book.builder().isbn("23").build()).get(), Arrays.asList(1l));
+        assertEquals(bookSearchIndex.search(Book.builder().isbn("978").build()).get(), Arrays.asList(1l, 2l));
+
+        // Título e autor casam pelo início das palavras, não por trecho no meio
+        assertEquals(bookSearchIndex.search(Book.builder().title("irac").build()).get(), Arrays.asList(1l));
+        assertTrue(bookSearchIndex.search(Book.builder().title("acema").build()).get().isEmpty());
+
+        // O id restringe o resultado; sozinho, fica para o banco
+        assertEquals(bookSearchIndex.search(Book.builder().id(2l).author("jose").build()).get(), Arrays.asList(2l));
+        assertTrue(bookSearchIndex.search(Book.builder().id(2l).isbn("123").build()).get().isEmpty());
+        assertFalse(bookSearchIndex.search(Book.builder().id(2l).build()).isPresent());
+    }
+
+    @Test
+    @DisplayName("R - Deve atualizar o índice de busca só depois do commit")
+    public void indexUpdatedAfterCommitTest(){
+
+        // Cenário
+        Mockito.when(bookRepository.findAll(Mockito.any(Pageable.class))).thenReturn(Page.empty());
+        bookSearchIndex.rebuild();
+        Book book = createValidBook();
+        Mockito.when(bookRepository.existsByIsbn(Mockito.any())).thenReturn(false);
+        Mockito.when(bookRepository.save(book)).thenReturn(Book.builder()
+                .id(1l).author("Larissa").title("Minha namorada").isbn("54321").build());
+
+        // Execução: transação desfeita
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bookService.save(book);
+            assertEquals(bookSearchIndex.size(), 0);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Verificação: sem commit, nenhuma entrada fantasma; com commit, o livro entra no índice
+        assertEquals(bookSearchIndex.size(), 0);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bookService.save(book);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(bookSearchIndex.search(Book.builder().title("namo").build()).get(), Arrays.asList(1l));
+    }
+
     public Book createValidBook() {
         return Book.builder()
                 .author("Larissa")
@@ -0,0 +1,97 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.entity.Customer;
+import com.rogerio.libraryapi.repository.CustomerRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.service.imp.CustomerServiceImp;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class CustomerServiceTest {
+
+    CustomerService customerService;
+
+    @MockBean
+    CustomerRepository customerRepository;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @BeforeEach
+    public void setUp(){
+        this.customerService = new CustomerServiceImp(customerRepository, loanRepository);
+    }
+
+    @Test
+    @DisplayName("A - Deve encontrar o cliente pelo e-mail normalizado")
+    public void resolveExistingCustomerTest(){
+
+        // Cenário
+        Mockito.when(customerRepository.findByEmail("fulano@email.com"))
+                .thenReturn(Optional.of(Customer.builder().id(7l).email("fulano@email.com").build()));
+
+        // Execução
+        Long id = customerService.resolveId("Fulano", "  Fulano@Email.COM ");
+
+        // Verificação
+        Assertions.assertEquals(id, 7l);
+        verify(customerRepository, never()).saveAndFlush(Mockito.any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("B - Deve criar o cliente quando o e-mail ainda não existir")
+    public void resolveNewCustomerTest(){
+
+        // Cenário
+        Mockito.when(customerRepository.findByEmail("fulano@email.com")).thenReturn(Optional.empty());
+        Mockito.when(customerRepository.saveAndFlush(Mockito.any(Customer.class))).thenAnswer(invocation -> {
+            Customer customer = invocation.getArgument(0);
+            customer.setId(8l);
+            return customer;
+        });
+
+        // Execução
+        Long id = customerService.resolveId("Fulano", "Fulano@email.com");
+
+        // Verificação
+        Assertions.assertEquals(id, 8l);
+        verify(customerRepository).saveAndFlush(Mockito.argThat(customer ->
+                "fulano@email.com".equals(customer.getEmail()) && "Fulano".equals(customer.getName())));
+    }
+
+    @Test
+    @DisplayName("C - Deve usar o cliente criado por outro pedido quando a restrição única falhar")
+    public void resolveConcurrentCustomerTest(){
+
+        // Cenário
+        Mockito.when(customerRepository.findByEmail("fulano@email.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(Customer.builder().id(9l).email("fulano@email.com").build()));
+        Mockito.when(customerRepository.saveAndFlush(Mockito.any(Customer.class)))
+                .thenThrow(new DataIntegrityViolationException("idx_customer_email"));
+
+        // Execução e verificação
+        Assertions.assertEquals(customerService.resolveId("Fulano", "fulano@email.com"), 9l);
+    }
+
+    @Test
+    @DisplayName("D - Não deve criar cliente para empréstimo sem e-mail")
+    public void resolveWithoutEmailTest(){
+        Assertions.assertNull(customerService.resolveId("Fulano", " "));
+        verifyNoInteractions(customerRepository);
+    }
+}
@@ -0,0 +1,211 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.entity.MailDeadLetter;
+import com.rogerio.libraryapi.repository.MailDeadLetterRepository;
+import com.rogerio.libraryapi.service.imp.EmailServiceImp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class EmailServiceTest {
+
+    EmailServiceImp emailService;
+
+    @MockBean
+    MailDeadLetterRepository deadLetterRepository;
+
+    @AfterEach
+    public void tearDown(){
+        emailService.stop();
+    }
+
+    private EmailServiceImp start(FakeMailSender mailSender, int queueCapacity, int senders) {
+        emailService = new EmailServiceImp(mailSender, deadLetterRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(emailService, "remetent", "mail@library-api.com");
+        ReflectionTestUtils.setField(emailService, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(emailService, "senders", senders);
+        ReflectionTestUtils.setField(emailService, "recipientsPerMessage", 50);
+        ReflectionTestUtils.setField(emailService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(emailService, "backoffInitialMillis", 1L);
+        ReflectionTestUtils.setField(emailService, "backoffMaxMillis", 10L);
+        emailService.start();
+        return emailService;
+    }
+
+    private List<String> recipients(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "customer" + i + "@email.com").collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("A - Deve dividir os destinatários em mensagens e enviar de forma assíncrona")
+    public void sendMailsInChunksTest() throws Exception {
+        // Cenário
+        FakeMailSender mailSender = new FakeMailSender(0);
+        start(mailSender, 10, 2);
+
+        // Execução
+        CompletableFuture<Void> delivery = emailService.sendMails("Atrasado", recipients(120));
+
+        // Verificação: o futuro só completa depois da entrega; os destinatários vão em cópia oculta
+        delivery.get(10, TimeUnit.SECONDS);
+        assertThat(mailSender.messages).hasSize(3);
+        assertThat(mailSender.recipients).hasSize(120);
+        assertThat(mailSender.messages).allSatisfy(message -> {
+            assertThat(message.getTo()).isNull();
+            assertThat(message.getBcc().length).isLessThanOrEqualTo(50);
+            assertThat(message.getText()).isEqualTo("Atrasado");
+        });
+        verify(deadLetterRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("B - Deve tentar novamente quando o servidor de e-mail falhar")
+    public void retryWithBackoffTest(){
+        // Cenário: as duas primeiras tentativas falham
+        FakeMailSender mailSender = new FakeMailSender(2);
+        start(mailSender, 10, 1);
+
+        // Execução
+        emailService.sendMails("Atrasado", recipients(10));
+
+        // Verificação
+        assertThat(emailService.awaitIdle(Duration.ofSeconds(10))).isTrue();
+        assertThat(mailSender.recipients).hasSize(10);
+        assertThat(emailService.getRetries()).isEqualTo(2);
+        verify(deadLetterRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("C - Deve guardar a mensagem na dead letter após esgotar as tentativas")
+    public void deadLetterTest() throws Exception {
+        // Cenário
+        FakeMailSender mailSender = new FakeMailSender(Integer.MAX_VALUE);
+        start(mailSender, 10, 1);
+
+        // Execução
+        CompletableFuture<Void> delivery = emailService.sendMails("Atrasado", recipients(2));
+
+        // Verificação: a falha definitiva chega a quem enviou
+        assertThatThrownBy(() -> delivery.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(MailSendException.class);
+        assertThat(emailService.awaitIdle(Duration.ofSeconds(10))).isTrue();
+        ArgumentCaptor<MailDeadLetter> captor = ArgumentCaptor.forClass(MailDeadLetter.class);
+        verify(deadLetterRepository).save(captor.capture());
+        assertThat(captor.getValue().getRecipients()).isEqualTo("customer0@email.com,customer1@email.com");
+        assertThat(captor.getValue().getAttempts()).isEqualTo(3);
+        assertThat(emailService.getDeadLetters()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("D - Deve manter o remetente ativo depois de um erro inesperado no envio")
+    public void unexpectedErrorTest() throws Exception {
+        // Cenário: o envio para um destinatário estoura uma exceção que não é MailException
+        FakeMailSender mailSender = new FakeMailSender(0);
+        mailSender.broken = "broken@email.com";
+        start(mailSender, 10, 1);
+
+        // Execução
+        CompletableFuture<Void> failed = emailService.sendMail("Atrasado", "broken@email.com");
+        CompletableFuture<Void> delivered = emailService.sendMail("Atrasado", "customer0@email.com");
+
+        // Verificação: a primeira vai para a dead letter e o único remetente entrega a seguinte
+        assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(MailSendException.class);
+        delivered.get(10, TimeUnit.SECONDS);
+        assertThat(emailService.awaitIdle(Duration.ofSeconds(1))).isTrue();
+        assertThat(mailSender.recipients).containsExactly("customer0@email.com");
+        verify(deadLetterRepository).save(any(MailDeadLetter.class));
+    }
+
+    // Servidor de e-mail em memória: simula falhas nas primeiras tentativas
+    class FakeMailSender implements JavaMailSender {
+        final List<SimpleMailMessage> messages = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> recipients = ConcurrentHashMap.newKeySet();
+        final AtomicInteger failures = new AtomicInteger();
+        private final int failuresBeforeSuccess;
+        // Destinatário cujo envio falha com um erro que não é MailException
+        volatile String broken;
+
+        FakeMailSender(int failuresBeforeSuccess) {
+            this.failuresBeforeSuccess = failuresBeforeSuccess;
+        }
+
+        @Override
+        public void send(SimpleMailMessage simpleMessage) {
+            if (broken != null && Arrays.asList(simpleMessage.getBcc()).contains(broken)) {
+                throw new IllegalStateException("Conexão SMTP em estado inválido");
+            }
+            if (failures.getAndIncrement() < failuresBeforeSuccess) {
+                throw new MailSendException("Servidor indisponível");
+            }
+            messages.add(simpleMessage);
+            recipients.addAll(Arrays.asList(simpleMessage.getBcc()));
+        }
+
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+            Arrays.stream(simpleMessages).forEach(this::send);
+        }
+
+        @Override
+        public MimeMessage createMimeMessage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MimeMessage createMimeMessage(InputStream contentStream) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessage mimeMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessagePreparator mimeMessagePreparator) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(MimeMessagePreparator... mimeMessagePreparators) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.service.imp.ExportServiceImp;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// *** TESTES DE INTEGRAÇÃO ***
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class ExportServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ExportService exportService;
+
+    Book book;
+
+    Loan loan;
+
+    @BeforeEach
+    public void setUp(){
+        this.exportService = new ExportServiceImp(jdbcTemplate, transactionManager);
+
+        book = Book.builder().author("Rogério").title("Meu sonho, \"volume 1\"").isbn("12345").build();
+        entityManager.persist(book);
+        loan = Loan.builder().book(book).customer("Fulano").customerEmail("fulano@email.com")
+                .loanDate(LocalDate.of(2021, 3, 10)).returned(true).build();
+        entityManager.persist(loan);
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("A - Deve exportar livros em NDJSON")
+    public void exportBooksNdjsonTest() throws Exception {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.exportBooks(output, ExportService.Format.NDJSON);
+
+        String expected = "{\"id\":" + book.getId() + ",\"title\":\"Meu sonho, \\\"volume 1\\\"\","
+                + "\"author\":\"Rogério\",\"isbn\":\"12345\"}\n";
+        Assertions.assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("B - Deve exportar empréstimos em CSV")
+    public void exportLoansCsvTest() throws Exception {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.exportLoans(output, ExportService.Format.CSV);
+
+        String expected = "id,bookId,customer,customerEmail,loanDate,returned\n"
+                + loan.getId() + "," + book.getId() + ",Fulano,fulano@email.com,2021-03-10,true\n";
+        Assertions.assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.dto.LoanDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.repository.LoanArchiveRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.service.imp.LoanArchiveServiceImp;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// *** TESTES DE INTEGRAÇÃO ***
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(LoanArchiveServiceImp.class)
+public class LoanArchiveServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanArchiveService loanArchiveService;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    LoanArchiveRepository loanArchiveRepository;
+
+    Book book;
+
+    List<Loan> loans = new ArrayList<>();
+
+    // Empréstimos 0 a 5: devolvidos há dois anos, exceto o 2 (aberto) e o 4 (devolvido ontem)
+    @BeforeEach
+    public void setUp(){
+        ReflectionTestUtils.setField(loanArchiveService, "batchSize", 2);
+        book = entityManager.persist(Book.builder().author("Rogério").title("Arquivo").isbn("archive-1").build());
+        LocalDate old = LocalDate.now().minusYears(2);
+        for (int i = 0; i < 6; i++) {
+            boolean open = i == 2;
+            loans.add(entityManager.persist(Loan.builder()
+                    .book(book)
+                    .customer("Cliente " + i)
+                    .loanDate(i == 4 ? LocalDate.now().minusDays(1) : old)
+                    .returned(!open)
+                    .openBookId(open ? book.getId() : null)
+                    .build()));
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("A - Deve mover em lotes só os empréstimos devolvidos antes da data de corte")
+    public void archiveTest(){
+
+        // Execução
+        long archived = loanArchiveService.archive(LocalDate.now().minusYears(1));
+
+        // Verificação
+        Assertions.assertEquals(archived, 4);
+        Assertions.assertEquals(loanArchiveRepository.count(), 4);
+        List<Long> hot = loanRepository.findAll().stream().map(Loan::getId).collect(Collectors.toList());
+        Assertions.assertEquals(hot, List.of(loans.get(2).getId(), loans.get(4).getId()));
+
+        // Nada a mover numa segunda execução
+        Assertions.assertEquals(loanArchiveService.archive(LocalDate.now().minusYears(1)), 0);
+    }
+
+    @Test
+    @DisplayName("B - Deve intercalar o histórico arquivado com os empréstimos atuais pelo id")
+    public void loanHistoryTest(){
+
+        // Cenário
+        loanArchiveService.archive(LocalDate.now().minusYears(1));
+        List<Long> allIds = loans.stream().map(Loan::getId).collect(Collectors.toList());
+
+        // Execução
+        Page<LoanDTO> firstPage = loanArchiveService.getLoanHistoryByBook(book.getId(), PageRequest.of(0, 4));
+        Page<LoanDTO> secondPage = loanArchiveService.getLoanHistoryByBook(book.getId(), PageRequest.of(1, 4));
+
+        List<Long> cursorIds = new ArrayList<>();
+        Slice<LoanDTO> slice;
+        long afterId = 0;
+        do {
+            slice = loanArchiveService.getLoanHistoryByBookAfter(book.getId(), afterId, 4);
+            slice.forEach(loan -> cursorIds.add(loan.getId()));
+            afterId = cursorIds.get(cursorIds.size() - 1);
+        } while (slice.hasNext());
+
+        // Verificação
+        Assertions.assertEquals(firstPage.getTotalElements(), 6);
+        Assertions.assertEquals(firstPage.getContent().stream().map(LoanDTO::getId).collect(Collectors.toList()),
+                allIds.subList(0, 4));
+        Assertions.assertEquals(secondPage.getContent().stream().map(LoanDTO::getId).collect(Collectors.toList()),
+                allIds.subList(4, 6));
+        Assertions.assertEquals(cursorIds, allIds);
+        Assertions.assertEquals(firstPage.getContent().get(0).getIsbn(), "archive-1");
+    }
+}
@@ -0,0 +1,236 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.dto.LoanCheckoutItemDTO;
+import com.rogerio.libraryapi.dto.LoanCheckoutResultDTO;
+import com.rogerio.libraryapi.entity.Book;
+import com.rogerio.libraryapi.entity.Loan;
+import com.rogerio.libraryapi.exceptions.BusinessException;
+import com.rogerio.libraryapi.repository.BookRepository;
+import com.rogerio.libraryapi.repository.LoanRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// *** TESTE DE CONCORRÊNCIA (contexto completo e banco H2) ***
+
+@SpringBootTest
+public class LoanCheckoutConcurrencyTest {
+
+    private static final int BOOKS = 8;
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("A - Não deve gerar empréstimos duplicados com checkouts concorrentes do mesmo livro")
+    public void concurrentCheckoutTest() throws Exception {
+
+        // Cenário
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookRepository.save(Book.builder()
+                    .author("Rogério").title("Concorrência " + i).isbn("concurrency-" + i).build()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                AtomicInteger admitted = new AtomicInteger();
+                AtomicInteger rejected = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+
+                // Todas as threads disputam todos os livros ao mesmo tempo
+                for (int t = 0; t < THREADS; t++) {
+                    Book book = books.get(t % BOOKS);
+                    String customer = "Cliente " + t;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            loanService.save(Loan.builder().book(book).customer(customer)
+                                    .loanDate(LocalDate.now()).build());
+                            admitted.incrementAndGet();
+                        } catch (BusinessException e) {
+                            rejected.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+
+                // Verificação: exatamente um empréstimo aberto por livro
+                Assertions.assertEquals(BOOKS, admitted.get());
+                Assertions.assertEquals(THREADS - BOOKS, rejected.get());
+                for (Book book : books) {
+                    Assertions.assertTrue(loanRepository.existsByBookAndNotReturned(book));
+                    Assertions.assertEquals(1, loanRepository.findAll().stream()
+                            .filter(loan -> book.getId().equals(loan.getOpenBookId()))
+                            .count());
+                }
+
+                // Devolve todos para a próxima rodada
+                for (Loan loan : loanRepository.findAll()) {
+                    if (loan.getOpenBookId() != null && loan.getOpenBookId() >= books.get(0).getId()) {
+                        loan.setReturned(true);
+                        loanService.update(loan);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("B - A restrição do banco deve recusar empréstimos duplicados mesmo sem os locks (vários nós)")
+    public void concurrentCheckoutDatabaseGuardTest() throws Exception {
+
+        // Cenário: gravação direta no repositório, como fariam nós diferentes
+        Book book = bookRepository.save(Book.builder()
+                .author("Rogério").title("Concorrência no banco").isbn("concurrency-db").build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                String customer = "Cliente " + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        loanRepository.save(Loan.builder().book(book).customer(customer)
+                                .loanDate(LocalDate.now()).openBookId(book.getId()).build());
+                        admitted.incrementAndGet();
+                    } catch (DataIntegrityViolationException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Verificação
+        Assertions.assertEquals(1, admitted.get());
+        Assertions.assertEquals(THREADS - 1, rejected.get());
+    }
+
+    @Test
+    @DisplayName("C - Deve emprestar vários livros numa transação, tudo ou nada ou parcial")
+    public void batchCheckoutTest() {
+
+        // Cenário: dois livros livres e um emprestado
+        Book first = bookRepository.save(Book.builder().author("Rogério").title("Lote 1").isbn("batch-1").build());
+        Book second = bookRepository.save(Book.builder().author("Rogério").title("Lote 2").isbn("batch-2").build());
+        Book loaned = bookRepository.save(Book.builder().author("Rogério").title("Lote 3").isbn("batch-3").build());
+        Loan open = loanService.save(Loan.builder().book(loaned).customer("Ciclano").loanDate(LocalDate.now()).build());
+        List<String> isbns = Arrays.asList("batch-1", "batch-3", "batch-404", "batch-2", "batch-1");
+
+        // Execução
+        LoanCheckoutResultDTO all = loanService.checkout("Fulano", "fulano@email.com", isbns, false);
+        LoanCheckoutResultDTO partial = loanService.checkout("Fulano", "fulano@email.com", isbns, true);
+
+        // Verificação: no modo tudo ou nada nenhum empréstimo é gravado
+        Assertions.assertEquals(0, all.getLoaned());
+        Assertions.assertEquals(Arrays.asList(LoanCheckoutItemDTO.Status.SKIPPED, LoanCheckoutItemDTO.Status.UNAVAILABLE,
+                LoanCheckoutItemDTO.Status.NOT_FOUND, LoanCheckoutItemDTO.Status.SKIPPED,
+                LoanCheckoutItemDTO.Status.UNAVAILABLE), statuses(all));
+
+        Assertions.assertEquals(2, partial.getLoaned());
+        Assertions.assertEquals(Arrays.asList(LoanCheckoutItemDTO.Status.LOANED, LoanCheckoutItemDTO.Status.UNAVAILABLE,
+                LoanCheckoutItemDTO.Status.NOT_FOUND, LoanCheckoutItemDTO.Status.LOANED,
+                LoanCheckoutItemDTO.Status.UNAVAILABLE), statuses(partial));
+        for (Book book : Arrays.asList(first, second)) {
+            Book saved = bookRepository.findById(book.getId()).get();
+            Assertions.assertFalse(saved.getAvailable());
+            Loan loan = loanRepository.findById(saved.getCurrentLoanId()).get();
+            Assertions.assertEquals(book.getId(), loan.getOpenBookId());
+            Assertions.assertEquals("fulano@email.com", loan.getCustomerEmail());
+        }
+        Assertions.assertEquals(partial.getItems().get(0).getLoanId(), bookRepository.findById(first.getId()).get().getCurrentLoanId());
+
+        loanService.returnLoans(Arrays.asList(open.getId(), partial.getItems().get(0).getLoanId(),
+                partial.getItems().get(3).getLoanId()), null);
+    }
+
+    @Test
+    @DisplayName("D - Lotes concorrentes com os mesmos livros devem emprestar cada livro uma única vez")
+    public void concurrentBatchCheckoutTest() throws Exception {
+
+        // Cenário: cada thread pede todos os livros, em ordens diferentes
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            bookRepository.save(Book.builder().author("Rogério").title("Lote concorrente " + i)
+                    .isbn("batch-concurrency-" + i).build());
+            isbns.add("batch-concurrency-" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger loaned = new AtomicInteger();
+        List<Long> loanIds = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                List<String> request = new ArrayList<>(isbns);
+                Collections.shuffle(request);
+                String customer = "Cliente " + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    LoanCheckoutResultDTO result = loanService.checkout(customer, null, request, true);
+                    loaned.addAndGet((int) result.getLoaned());
+                    result.getItems().stream()
+                            .filter(item -> item.getLoanId() != null)
+                            .forEach(item -> loanIds.add(item.getLoanId()));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Verificação
+        Assertions.assertEquals(BOOKS, loaned.get());
+        Assertions.assertEquals(BOOKS, loanIds.stream().distinct().count());
+
+        loanService.returnLoans(loanIds, null);
+    }
+
+    private static List<LoanCheckoutItemDTO.Status> statuses(LoanCheckoutResultDTO result) {
+        return result.getItems().stream().map(LoanCheckoutItemDTO::getStatus).collect(Collectors.toList());
+    }
+}
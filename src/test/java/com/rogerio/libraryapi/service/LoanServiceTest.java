@@ -1,23 +1,32 @@
 package com.rogerio.libraryapi.service;
 
+import com.rogerio.libraryapi.cache.BookAvailabilityIndex;
+import com.rogerio.libraryapi.cache.LoanDueQueue;
 import com.rogerio.libraryapi.dto.LoanFilterDTO;
+import com.rogerio.libraryapi.dto.LoanReturnItemDTO;
+import com.rogerio.libraryapi.dto.LoanReturnResultDTO;
 import com.rogerio.libraryapi.entity.Book;
 import com.rogerio.libraryapi.entity.Loan;
 import com.rogerio.libraryapi.exceptions.BusinessException;
+import com.rogerio.libraryapi.repository.BookRepository;
 import com.rogerio.libraryapi.repository.LoanRepository;
+import com.rogerio.libraryapi.repository.LoanSearchRepository;
 import com.rogerio.libraryapi.service.imp.LoanServiceImp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.BDDMockito;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -39,14 +48,33 @@ public class LoanServiceTest {
 
     LoanService loanService;
 
+    BookAvailabilityIndex availabilityIndex;
+
     // Simula um repositório
     @MockBean
     LoanRepository loanRepository;
 
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    LoanSearchRepository loanSearchRepository;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    LoanDueQueue dueQueue;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
     // Estabelecer uma conexão com o banco de dados
     @BeforeEach
     public void setUp(){
-        this.loanService = new LoanServiceImp(loanRepository);
+        this.availabilityIndex = new BookAvailabilityIndex(loanRepository);
+        this.loanService = new LoanServiceImp(loanRepository, bookRepository, availabilityIndex,
+                loanSearchRepository, customerService, dueQueue, transactionManager, new SimpleMeterRegistry());
     }
 
     @Test
@@ -69,12 +97,14 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now()).build();
 
         // Cenário
-        Mockito.when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(false);
+        Mockito.when(bookRepository.checkOut(1l)).thenReturn(1);
 
-        Mockito.when(loanRepository.save(savingLoan)).thenReturn(savedLoan);
+        Mockito.when(loanRepository.saveAndFlush(savingLoan)).thenReturn(savedLoan);
 
         Loan loan =  loanService.save(savingLoan);
 
+        verify(bookRepository).setCurrentLoan(1l, 1l);
+
         Assertions.assertEquals(loan.getId(), savedLoan.getId());
         Assertions.assertEquals(loan.getBook(), savedLoan.getBook());
         Assertions.assertEquals(loan.getCustomer(), savedLoan.getCustomer());
@@ -94,12 +124,12 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        // Cenário
-        Mockito.when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(true);
+        // Cenário: o update condicional não encontra o livro disponível
+        Mockito.when(bookRepository.checkOut(1l)).thenReturn(0);
 
         Exception exception = Assertions.assertThrows(BusinessException.class, () -> loanService.save(savingLoan));
         assertTrue(exception.getMessage().contains("Book already loaned"));
-        verify(loanRepository, never()).save(savingLoan); // garantir a não execução do save, gravando os dados
+        verify(loanRepository, never()).saveAndFlush(savingLoan); // garantir a não execução do save, gravando os dados
 
     }
 
@@ -136,13 +166,14 @@ public class LoanServiceTest {
         loan.setId(1l);
         loan.setReturned(true);
 
-        Mockito.when(loanRepository.save(loan)).thenReturn(loan);
+        Mockito.when(loanRepository.saveAndFlush(loan)).thenReturn(loan);
 
         Loan updatedLoan = loanService.update(loan);
 
         assertTrue(updatedLoan.getReturned());
 
-        verify(loanRepository).save(loan);
+        verify(loanRepository).saveAndFlush(loan);
+        verify(bookRepository).checkIn(1l, 1l);
 
 
     }
@@ -162,12 +193,9 @@ public class LoanServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         List<Loan> lista = Arrays.asList(loan);
 
-        Page<Loan> page = new PageImpl<Loan>(lista, pageable, lista.size());
-        Mockito.when(loanRepository.findByBookIsbnOrCustomer(
-                Mockito.anyString(),
-                Mockito.anyString(),
-                Mockito.any(PageRequest.class)))
-                .thenReturn(page);
+        Page<Long> page = new PageImpl<Long>(Arrays.asList(1l), pageable, lista.size());
+        Mockito.when(loanSearchRepository.findIds(loanFilterDTO, pageable)).thenReturn(page);
+        Mockito.when(loanRepository.findAllById(Arrays.asList(1l))).thenReturn(lista);
 
         // Execução
         Page<Loan> result = loanService.find(loanFilterDTO, pageable);
@@ -181,6 +209,160 @@ public class LoanServiceTest {
 
 
 
+    @Test
+    @DisplayName("F - Deve admitir pelo banco o livro que o índice ainda marca como emprestado")
+    public void saveLoanReturnedOnOtherNodeTest(){
+
+        // Cenário: livro 1 emprestado na inicialização e devolvido em outro nó; o índice deste nó não sabe
+        Mockito.when(loanRepository.findNotReturnedBookIds()).thenReturn(Arrays.asList(1l));
+        availabilityIndex.rebuild();
+
+        Loan loan = createLoan();
+        Mockito.when(bookRepository.checkOut(1l)).thenReturn(1);
+        Mockito.when(loanRepository.saveAndFlush(loan)).thenReturn(loan);
+
+        // Execução
+        Assertions.assertDoesNotThrow(() -> loanService.save(loan));
+
+        // Verificação: o update condicional decidiu
+        verify(bookRepository, times(1)).checkOut(1l);
+        verify(loanRepository, times(1)).saveAndFlush(loan);
+    }
+
+    @Test
+    @DisplayName("G - Deve liberar o livro no índice de disponibilidade ao devolver o empréstimo")
+    public void returnLoanByAvailabilityIndexTest(){
+
+        // Cenário
+        Mockito.when(loanRepository.findNotReturnedBookIds()).thenReturn(Arrays.asList(1l));
+        availabilityIndex.rebuild();
+
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setReturned(true);
+        Mockito.when(loanRepository.saveAndFlush(Mockito.any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(bookRepository.checkOut(1l)).thenReturn(1);
+
+        // Execução
+        loanService.update(loan);
+
+        // Verificação
+        Assertions.assertEquals(availabilityIndex.isLoaned(1l), Boolean.FALSE);
+        Loan newLoan = createLoan();
+        Assertions.assertDoesNotThrow(() -> loanService.save(newLoan));
+        Assertions.assertEquals(availabilityIndex.isLoaned(1l), Boolean.TRUE);
+    }
+
+    @Test
+    @DisplayName("H - Deve recusar pelo banco e corrigir o índice quando ele marcar o livro como livre")
+    public void verifyAvailabilityIndexTest(){
+
+        // Cenário: índice diz que o livro está livre, banco diz que está emprestado
+        Mockito.when(loanRepository.findNotReturnedBookIds()).thenReturn(Arrays.asList());
+        availabilityIndex.rebuild();
+
+        Loan loan = createLoan();
+        Mockito.when(bookRepository.checkOut(1l)).thenReturn(0);
+
+        // Execução e verificação: o banco prevalece e o índice é corrigido
+        Assertions.assertThrows(BusinessException.class, () -> loanService.save(loan));
+        Assertions.assertEquals(availabilityIndex.isLoaned(1l), Boolean.TRUE);
+    }
+
+    @Test
+    @DisplayName("I - Deve recusar a reabertura de um empréstimo quando o livro já foi emprestado novamente")
+    public void reopenLoanedBookTest(){
+
+        // Cenário
+        Mockito.when(loanRepository.findNotReturnedBookIds()).thenReturn(Arrays.asList());
+        availabilityIndex.rebuild();
+
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setReturned(false);
+        Mockito.when(bookRepository.reopen(1l, 1l)).thenReturn(0);
+
+        // Execução e verificação
+        Assertions.assertThrows(BusinessException.class, () -> loanService.update(loan));
+        verify(loanRepository, never()).saveAndFlush(loan);
+        Assertions.assertEquals(availabilityIndex.isLoaned(1l), Boolean.TRUE);
+    }
+
+    @Test
+    @DisplayName("J - Deve devolver em lote com um update para os empréstimos e outro para os livros")
+    public void returnLoansTest(){
+
+        // Cenário: empréstimo 1 aberto, 2 já devolvido, 9 inexistente; ISBN 555 com o empréstimo 3 aberto
+        Mockito.when(loanRepository.findNotReturnedBookIds()).thenReturn(Arrays.asList(10l, 30l));
+        availabilityIndex.rebuild();
+        Mockito.when(bookRepository.findCurrentLoanIdsByIsbn(Arrays.asList("555", "666", "777")))
+                .thenReturn(Arrays.asList(new Object[]{"555", 3l}, new Object[]{"666", null}));
+        Mockito.when(loanRepository.lockForReturn(Mockito.anyCollection())).thenReturn(Arrays.asList(
+                new Object[]{1l, 10l, false}, new Object[]{2l, 20l, true}, new Object[]{3l, 30l, null}));
+
+        // Execução
+        LoanReturnResultDTO result = loanService.returnLoans(Arrays.asList(1l, 2l, 9l), Arrays.asList("555", "666", "777"));
+
+        // Verificação
+        assertEquals(result.getReturned(), 2);
+        assertEquals(result.getItems().stream().map(LoanReturnItemDTO::getStatus).collect(java.util.stream.Collectors.toList()),
+                Arrays.asList(LoanReturnItemDTO.Status.RETURNED, LoanReturnItemDTO.Status.ALREADY_RETURNED,
+                        LoanReturnItemDTO.Status.NOT_FOUND, LoanReturnItemDTO.Status.RETURNED,
+                        LoanReturnItemDTO.Status.NOT_LOANED, LoanReturnItemDTO.Status.NOT_FOUND));
+        verify(loanRepository, times(1)).markReturned(Arrays.asList(1l, 3l));
+        verify(bookRepository, times(1)).checkInAll(Arrays.asList(1l, 3l));
+        verify(dueQueue, times(1)).markReturned(Arrays.asList(1l, 3l));
+        verify(loanRepository, never()).saveAndFlush(Mockito.any(Loan.class));
+        Assertions.assertEquals(availabilityIndex.isLoaned(10l), Boolean.FALSE);
+        Assertions.assertEquals(availabilityIndex.isLoaned(30l), Boolean.FALSE);
+    }
+
+    @Test
+    @DisplayName("K - Deve recusar uma devolução em lote vazia")
+    public void returnLoansEmptyTest(){
+        Assertions.assertThrows(BusinessException.class, () -> loanService.returnLoans(null, Arrays.asList()));
+    }
+
+    @Test
+    @DisplayName("L - Deve vincular o empréstimo ao cliente do e-mail informado")
+    public void saveLoanWithCustomerTest(){
+
+        // Cenário
+        Loan savingLoan = createLoan();
+        savingLoan.setCustomerEmail("Fulano@Email.com");
+        Mockito.when(customerService.resolveId("Fulano", "Fulano@Email.com")).thenReturn(7l);
+        Mockito.when(bookRepository.checkOut(1l)).thenReturn(1);
+        Mockito.when(loanRepository.saveAndFlush(Mockito.any(Loan.class))).thenAnswer(invocation -> {
+            Loan loan = invocation.getArgument(0);
+            loan.setId(1l);
+            return loan;
+        });
+
+        // Execução
+        Loan loan = loanService.save(savingLoan);
+
+        // Verificação
+        Assertions.assertEquals(7l, loan.getCustomerId());
+        verify(customerService, times(1)).resolveId("Fulano", "Fulano@Email.com");
+        verify(dueQueue, times(1)).markLoaned(loan);
+        // O cliente é resolvido antes de abrir a transação do empréstimo
+        InOrder order = inOrder(customerService, transactionManager);
+        order.verify(customerService).resolveId("Fulano", "Fulano@Email.com");
+        order.verify(transactionManager).getTransaction(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("M - Deve recusar a busca ordenada por uma propriedade desconhecida")
+    public void findByUnknownSortTest(){
+        // Execução
+        BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> loanService
+                .findDTO(new LoanFilterDTO(), PageRequest.of(0, 10, Sort.by("book.title"))));
+
+        // Verificação
+        Assertions.assertEquals(exception.getMessage(), "Invalid sort property: book.title");
+        verifyNoInteractions(loanSearchRepository);
+    }
+
     public static Loan createLoan(){
         Book book = Book.builder().id(1l).build();
         String customer = "Fulano";
@@ -0,0 +1,269 @@
+package com.rogerio.libraryapi.service;
+
+import com.rogerio.libraryapi.cache.LoanDueQueue;
+import com.rogerio.libraryapi.dto.OverdueLoanDTO;
+import com.rogerio.libraryapi.entity.JobCheckpoint;
+import com.rogerio.libraryapi.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest {
+
+    ScheduleService scheduleService;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    EmailService emailService;
+
+    @MockBean
+    JobCheckpointRepository checkpointRepository;
+
+    @MockBean
+    LoanArchiveService loanArchiveService;
+
+    // Checkpoint gravado pelo job, simula a tabela
+    Map<String, JobCheckpoint> checkpoints = new HashMap<>();
+
+    // Empréstimos atrasados com ids de 1 a 10 em ordem de (cliente, id): o cliente 2 atravessa o lote de leitura
+    List<OverdueLoanDTO> lateLoans = Arrays.asList(
+            lateLoan(1, 1), lateLoan(2, 1),
+            lateLoan(3, 2), lateLoan(4, 2), lateLoan(5, 2), lateLoan(6, 2),
+            lateLoan(7, 3),
+            lateLoan(8, 4), lateLoan(9, 4),
+            lateLoan(10, 5));
+
+    @BeforeEach
+    public void setUp(){
+        this.scheduleService = new ScheduleService(loanService, emailService, checkpointRepository, loanArchiveService);
+        ReflectionTestUtils.setField(scheduleService, "message", "Atrasado");
+        ReflectionTestUtils.setField(scheduleService, "chunkSize", 3);
+        ReflectionTestUtils.setField(scheduleService, "workers", 2);
+        ReflectionTestUtils.setField(scheduleService, "digestBatchSize", 2);
+        ReflectionTestUtils.setField(scheduleService, "mode", "scan");
+
+        when(emailService.sendMail(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        when(checkpointRepository.findById(ScheduleService.LATE_LOANS_JOB))
+                .thenAnswer(invocation -> Optional.ofNullable(checkpoints.get(ScheduleService.LATE_LOANS_JOB)));
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> {
+            JobCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getName(), checkpoint);
+            return checkpoint;
+        });
+        when(loanService.getOverdueLoansByCustomerAfter(any(LocalDate.class), anyLong(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> {
+                    long afterCustomerId = invocation.getArgument(1);
+                    long afterId = invocation.getArgument(2);
+                    int size = invocation.getArgument(3);
+                    return lateLoans.stream()
+                            .filter(loan -> loan.getCustomerId() > afterCustomerId
+                                    || (loan.getCustomerId() == afterCustomerId && loan.getId() > afterId))
+                            .limit(size)
+                            .collect(Collectors.toList());
+                });
+    }
+
+    @Test
+    @DisplayName("A - Deve enviar um resumo por cliente com os livros atrasados e concluir o checkpoint")
+    public void sendDigestPerCustomerTest(){
+        // Cenário
+        LocalDate today = LocalDate.now();
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+
+        // Execução
+        scheduleService.run(today);
+
+        // Verificação: um e-mail por cliente, mesmo com o cliente 2 dividido entre dois lotes de leitura
+        verify(emailService, times(5)).sendMail(messages.capture(), anyString());
+        verify(emailService).sendMail(anyString(), eq("customer2@email.com"));
+        verify(emailService, never()).sendMails(anyString(), anyList());
+        String digest = messages.getAllValues().stream()
+                .filter(message -> message.contains("Cliente 2")).findFirst().get();
+        assertThat(digest).startsWith("Atrasado").contains("Livro 3", "Livro 4", "Livro 5", "Livro 6")
+                .doesNotContain("Livro 7");
+        JobCheckpoint checkpoint = checkpoints.get(ScheduleService.LATE_LOANS_JOB);
+        assertThat(checkpoint.getRunDate()).isEqualTo(today);
+        assertThat(checkpoint.getLastId()).isEqualTo(5L);
+        assertThat(checkpoint.getCompleted()).isTrue();
+
+        // Uma nova execução no mesmo dia não reenvia
+        scheduleService.run(today);
+        verify(emailService, times(5)).sendMail(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("B - Deve retomar a partir do último cliente com o resumo enviado após uma falha")
+    public void resumeAfterFailureTest(){
+        // Cenário: o resumo do cliente 3 vai para a dead letter na primeira execução (entrega falha depois de enfileirar)
+        LocalDate today = LocalDate.now();
+        Set<String> sent = Collections.synchronizedSet(new HashSet<>());
+        doAnswer(invocation -> {
+            String recipient = invocation.getArgument(1);
+            if (recipient.equals("customer3@email.com") && !sent.contains("failed")) {
+                sent.add("failed");
+                CompletableFuture<Void> delivery = new CompletableFuture<>();
+                delivery.completeExceptionally(new MailSendException("SMTP indisponível"));
+                return delivery;
+            }
+            sent.add(recipient);
+            return CompletableFuture.completedFuture(null);
+        }).when(emailService).sendMail(anyString(), anyString());
+
+        // Execução
+        scheduleService.run(today);
+
+        // Verificação
+        JobCheckpoint checkpoint = checkpoints.get(ScheduleService.LATE_LOANS_JOB);
+        assertThat(checkpoint.getCompleted()).isFalse();
+        assertThat(checkpoint.getLastId()).isEqualTo(2L);
+
+        // Execução: retomada
+        scheduleService.resumeLateLoansJob();
+
+        // Verificação: a retomada começa depois do cliente 2 inteiro
+        assertThat(checkpoint.getCompleted()).isTrue();
+        assertThat(checkpoint.getLastId()).isEqualTo(5L);
+        assertThat(sent).contains("customer3@email.com", "customer4@email.com", "customer5@email.com");
+        verify(loanService, times(1)).getOverdueLoansByCustomerAfter(today, 2L, Long.MAX_VALUE, 3);
+        verify(emailService, times(1)).sendMail(anyString(), eq("customer1@email.com"));
+    }
+
+    @Test
+    @DisplayName("C - Deve limitar os livros listados no resumo e informar quantos ficaram de fora")
+    public void digestLimitTest(){
+        // Cenário: um cliente com mais atrasados do que o resumo lista
+        int total = ScheduleService.DIGEST_MAX_LOANS + 2;
+        lateLoans = LongStream.rangeClosed(1, total).mapToObj(id -> lateLoan(id, 1)).collect(Collectors.toList());
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+
+        // Execução
+        scheduleService.run(LocalDate.now());
+
+        // Verificação
+        verify(emailService, times(1)).sendMail(message.capture(), eq("customer1@email.com"));
+        assertThat(message.getValue()).contains("Livro " + ScheduleService.DIGEST_MAX_LOANS)
+                .doesNotContain("Livro " + total).contains("e mais 2 empréstimos");
+    }
+
+    @Test
+    @DisplayName("D - Deve enviar um resumo por cliente para os empréstimos que acabaram de vencer")
+    public void loansOverdueEventTest(){
+        // Cenário: a fila de vencimentos disparou 4 empréstimos, 3 ainda abertos de 2 clientes
+        List<Long> loanIds = Arrays.asList(3l, 4l, 7l, 11l);
+        when(loanService.getOverdueLoansByIds(loanIds))
+                .thenReturn(Arrays.asList(lateLoans.get(2), lateLoans.get(3), lateLoans.get(6)));
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+
+        // Execução
+        scheduleService.onLoansOverdue(new LoanDueQueue.LoansOverdueEvent(loanIds));
+
+        // Verificação
+        verify(emailService).sendMail(message.capture(), eq("customer2@email.com"));
+        verify(emailService).sendMail(anyString(), eq("customer3@email.com"));
+        verify(emailService, times(2)).sendMail(anyString(), anyString());
+        assertThat(message.getValue()).contains("Livro 3", "Livro 4");
+        verify(loanService, never()).getOverdueLoansByCustomerAfter(any(LocalDate.class), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("E - Não deve varrer os empréstimos no horário agendado quando o modo for timer")
+    public void timerModeSkipsScanTest(){
+        // Cenário
+        ReflectionTestUtils.setField(scheduleService, "mode", "timer");
+
+        // Execução
+        scheduleService.SendMailToLateLoans();
+        scheduleService.resumeLateLoansJob();
+
+        // Verificação
+        verify(loanService, never()).getOverdueLoansByCustomerAfter(any(LocalDate.class), anyLong(), anyLong(), anyInt());
+        verify(checkpointRepository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("F - Deve avançar o checkpoint só depois da confirmação da entrega")
+    public void checkpointAfterDeliveryTest(){
+        // Cenário: o servidor confirma cada resumo depois de enfileirado, em outra thread
+        LocalDate today = LocalDate.now();
+        Set<Long> delivered = Collections.synchronizedSet(new HashSet<>());
+        List<String> checkpointErrors = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            String recipient = invocation.getArgument(1);
+            long customerId = Long.parseLong(recipient.replaceAll("\\D", ""));
+            return CompletableFuture.runAsync(() -> delivered.add(customerId),
+                    CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        }).when(emailService).sendMail(anyString(), anyString());
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> {
+            JobCheckpoint checkpoint = invocation.getArgument(0);
+            for (long customerId = 1; customerId <= checkpoint.getLastId(); customerId++) {
+                if (!delivered.contains(customerId)) {
+                    checkpointErrors.add("checkpoint em " + checkpoint.getLastId() + " sem a entrega do cliente " + customerId);
+                }
+            }
+            checkpoints.put(checkpoint.getName(), checkpoint);
+            return checkpoint;
+        });
+
+        // Execução
+        scheduleService.run(today);
+
+        // Verificação: run espera as entregas pendentes antes de concluir
+        assertThat(checkpointErrors).isEmpty();
+        assertThat(delivered).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+        JobCheckpoint checkpoint = checkpoints.get(ScheduleService.LATE_LOANS_JOB);
+        assertThat(checkpoint.getLastId()).isEqualTo(5L);
+        assertThat(checkpoint.getCompleted()).isTrue();
+    }
+
+    @Test
+    @DisplayName("G - Deve tratar como concluído o lote com um resumo na dead letter")
+    public void loansOverdueDeliveryFailureTest(){
+        // Cenário
+        List<Long> loanIds = Arrays.asList(3l, 7l);
+        when(loanService.getOverdueLoansByIds(loanIds))
+                .thenReturn(Arrays.asList(lateLoans.get(2), lateLoans.get(6)));
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new MailSendException("SMTP indisponível"));
+        when(emailService.sendMail(anyString(), eq("customer3@email.com"))).thenReturn(failed);
+
+        // Execução: o resumo do cliente 3 já está guardado para reenvio, a fila não repete o lote
+        scheduleService.onLoansOverdue(new LoanDueQueue.LoansOverdueEvent(loanIds));
+
+        // Verificação
+        verify(emailService, times(2)).sendMail(anyString(), anyString());
+    }
+
+    private static OverdueLoanDTO lateLoan(long id, long customerId) {
+        return OverdueLoanDTO.builder()
+                .id(id)
+                .customerId(customerId)
+                .customer("Cliente " + customerId)
+                .email("customer" + customerId + "@email.com")
+                .title("Livro " + id)
+                .isbn("isbn-" + id)
+                .loanDate(LocalDate.now().minusDays(10))
+                .build();
+    }
+}
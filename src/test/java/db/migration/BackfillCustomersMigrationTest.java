@@ -0,0 +1,67 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Roda as migrações num banco próprio: esquema até V7, empréstimos antigos sem cliente e então o backfill
+public class BackfillCustomersMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:backfill-customers;DB_CLOSE_DELAY=-1";
+
+    @Test
+    @DisplayName("A - Deve criar um cliente por e-mail e vincular os empréstimos em lotes")
+    public void backfillCustomersTest(){
+
+        // Cenário: mais de dois lotes, e-mails com maiúsculas e espaços, empréstimos sem e-mail e um arquivado
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        flyway(dataSource, MigrationVersion.fromVersion("7")).migrate();
+
+        int loans = V8__BackfillCustomers.BATCH_SIZE * 2 + 500;
+        jdbcTemplate.update("insert into tb_book (id, title, author, isbn) values (1, 'Meu sonho', 'Rogério', '1234')");
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= loans; id++) {
+            String email = id % 10 == 0 ? null : (id % 2 == 0 ? " Cliente" + (id % 3) + "@Email.com" : "cliente" + (id % 3) + "@email.com");
+            rows.add(new Object[]{id, "Cliente " + (id % 3), email});
+        }
+        jdbcTemplate.batchUpdate("insert into tb_loan (id, customer, id_book, loan_date, returned, customer_email) " +
+                " values (?, ?, 1, current_date, true, ?)", rows);
+        jdbcTemplate.update("insert into tb_loan_archive (id, customer, id_book, loan_date, returned, customer_email) " +
+                " values (?, 'Arquivado', 1, current_date, true, 'arquivado@email.com')", loans + 1);
+
+        // Execução
+        flyway(dataSource, MigrationVersion.LATEST).migrate();
+
+        // Verificação
+        Assertions.assertEquals(jdbcTemplate.queryForObject("select count(*) from tb_customer", Long.class), 4);
+        Assertions.assertEquals(jdbcTemplate.queryForObject(
+                "select count(*) from tb_customer where email = 'cliente1@email.com'", Long.class), 1);
+        Assertions.assertEquals(jdbcTemplate.queryForObject(
+                "select count(*) from tb_loan where id_customer is null", Long.class), loans / 10);
+        // Cada e-mail aponta para um único cliente
+        Assertions.assertEquals(jdbcTemplate.queryForObject(
+                "select count(*) from ( select lower(trim(customer_email)) from tb_loan where customer_email is not null " +
+                " group by lower(trim(customer_email)) having count(distinct id_customer) <> 1 )", Long.class), 0);
+        Assertions.assertNotNull(jdbcTemplate.queryForObject(
+                "select id_customer from tb_loan_archive where id = ?", Long.class, loans + 1));
+        // A sequence entrega blocos depois dos ids criados pelo backfill
+        Long next = jdbcTemplate.queryForObject("select next value for seq_customer", Long.class);
+        Long max = jdbcTemplate.queryForObject("select max(id) from tb_customer", Long.class);
+        Assertions.assertTrue(next - 49 > max);
+    }
+
+    private Flyway flyway(DriverManagerDataSource dataSource, MigrationVersion target) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .target(target)
+                .load();
+    }
+}
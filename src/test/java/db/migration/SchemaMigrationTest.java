@@ -0,0 +1,46 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+// Roda as migrações num banco próprio: esquema inicial com dados e então as migrações seguintes
+public class SchemaMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:schema-migration;DB_CLOSE_DELAY=-1";
+
+    @Test
+    @DisplayName("A - Deve criar as sequences depois dos ids gravados no esquema inicial")
+    public void sequencesAfterExistingIdsTest(){
+
+        // Cenário: banco no esquema inicial, com ids gerados por identity
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        flyway(dataSource, MigrationVersion.fromVersion("1")).migrate();
+        jdbcTemplate.update("insert into tb_book (id, title, author, isbn) values (120, 'Meu sonho', 'Rogério', '1234')");
+        jdbcTemplate.update("insert into tb_loan (id, customer, id_book, loan_date, returned) " +
+                " values (75, 'Fulano', 120, current_date, false)");
+
+        // Execução
+        flyway(dataSource, MigrationVersion.LATEST).migrate();
+
+        // Verificação: o primeiro bloco de cada sequence começa depois do maior id
+        Long nextBook = jdbcTemplate.queryForObject("select next value for seq_book", Long.class);
+        Long nextLoan = jdbcTemplate.queryForObject("select next value for seq_loan", Long.class);
+        Assertions.assertTrue(nextBook - 49 > 120, "seq_book: " + nextBook);
+        Assertions.assertTrue(nextLoan - 49 > 75, "seq_loan: " + nextLoan);
+        Assertions.assertEquals(jdbcTemplate.queryForObject(
+                "select returned from tb_loan where id = 75", Boolean.class), false);
+    }
+
+    private Flyway flyway(DriverManagerDataSource dataSource, MigrationVersion target) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .target(target)
+                .load();
+    }
+}